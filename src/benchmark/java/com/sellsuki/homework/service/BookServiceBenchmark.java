@@ -0,0 +1,63 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.model.CatalogIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * parse book list response to the catalog index, the body is the same shape as
+ * src/test/resources/response/books.json with many more books (and one field that is skipped)
+ *
+ * run: mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookServiceBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BookServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int books;
+
+    private final BookService bookService = new BookService();
+
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder json = new StringBuilder(books * 100).append("{\"books\":[");
+        for (int i = 0; i < books; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"cover\":\"cover\",\"price\":\"").append(100 + i % 900).append(i % 4 == 0 ? ".50" : "")
+                    .append("\",\"title\":\"Book (").append(i).append(")\",\"id\":\"").append(9780000000000L + i)
+                    .append("\"}");
+        }
+        json.append("],\"total\":").append(books).append('}');
+
+        body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public CatalogIndex readBooks() throws IOException {
+        return bookService.readBooks(new ByteArrayInputStream(body));
+    }
+}
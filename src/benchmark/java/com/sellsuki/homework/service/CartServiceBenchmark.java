@@ -0,0 +1,179 @@
+package com.sellsuki.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.dto.CartProductRequestDTO;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.Quote;
+import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * pricing hot path without spring, with the books in src/test/resources/response/books.json
+ * (book 1 to 7 are promotion books, 8 is not).
+ *
+ * SMALL        2 promotion books and 1 other book
+ * LARGE        200 lines of all 8 books, same book in many lines
+ * DP           all 7 promotion titles with uneven amounts, bundle optimizer use dp
+ * PATHOLOGICAL all 7 promotion titles with very high uneven amounts, too big for dp and fall back to greedy
+ *
+ * run: mvn -Pbenchmark test-compile exec:exec -Djmh.args="CartServiceBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    @Param({"SMALL", "LARGE", "DP", "PATHOLOGICAL"})
+    public String cart;
+
+    private CartService cartService;
+
+    private CatalogIndex catalogIndex;
+
+    private CreateCartRequest request;
+
+    private List<CartProductRequestDTO> cartProductDTOs;
+
+    private Response<CreateCartResponse> response;
+
+    private ForkJoinPool pricingPool;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PricingMetrics pricingMetrics = new PricingMetrics();
+        PromotionService promotionService = new PromotionService();
+        ReflectionTestUtils.setField(promotionService, "pricingMetrics", pricingMetrics);
+        ReflectionTestUtils.setField(promotionService, "promotionBookId", "1,2,3,4,5,6,7");
+        ReflectionTestUtils.setField(promotionService, "promotionTiers", "0,0,10,11,12,13,14,15");
+        ReflectionTestUtils.setField(promotionService, "bundleMemoSize", 10000);
+        ReflectionTestUtils.setField(promotionService, "bundleMaxStates", 100000);
+        promotionService.init();
+
+        try (InputStream books = CartServiceBenchmark.class.getResourceAsStream("/response/books.json")) {
+            catalogIndex = new BookService().readBooks(books).withPromotion(promotionService.getPromotionConfig());
+        }
+        CatalogIndex index = catalogIndex;
+        CatalogService catalogService = new CatalogService() {
+            @Override
+            public CatalogIndex getCatalogIndex() {
+                return index;
+            }
+        };
+
+        QuoteService quoteService = new QuoteService();
+        ReflectionTestUtils.setField(quoteService, "maxSize", 10000);
+        ReflectionTestUtils.setField(quoteService, "segments", 16);
+        quoteService.init();
+
+        pricingPool = new ForkJoinPool(1);
+        cartService = new CartService();
+        ReflectionTestUtils.setField(cartService, "catalogService", catalogService);
+        ReflectionTestUtils.setField(cartService, "promotionService", promotionService);
+        ReflectionTestUtils.setField(cartService, "quoteService", quoteService);
+        ReflectionTestUtils.setField(cartService, "pricingMetrics", pricingMetrics);
+        ReflectionTestUtils.setField(cartService, "pricingPool", pricingPool);
+        ReflectionTestUtils.setField(cartService, "batchMaxSize", 500);
+        ReflectionTestUtils.setField(cartService, "parallelThreshold", 64);
+
+        request = newCart(cart);
+        cartProductDTOs = cartService.transformCartProduct(request.getProducts(), catalogIndex);
+        response = new Response<>(cartService.createCart(request));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pricingPool.shutdown();
+    }
+
+    // whole request, the quote is from quote cache after the first call
+    @Benchmark
+    public CreateCartResponse createCart() throws Exception {
+        return cartService.createCart(request);
+    }
+
+    @Benchmark
+    public List<CartProductRequestDTO> transformCartProduct() throws Exception {
+        return cartService.transformCartProduct(request.getProducts(), catalogIndex);
+    }
+
+    // total price and bundle discount without quote cache (bundle optimizer memo is still used)
+    @Benchmark
+    public Quote calculateQuote() {
+        return cartService.calculateQuote(cartProductDTOs, catalogIndex);
+    }
+
+    @Benchmark
+    public byte[] writeResponse() throws Exception {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    private static CreateCartRequest newCart(String cart) {
+        List<CartProductRequest> products = new ArrayList<>();
+        switch (cart) {
+            case "SMALL":
+                products.add(newCartProductRequest("1", 1));
+                products.add(newCartProductRequest("2", 1));
+                products.add(newCartProductRequest("8", 1));
+                break;
+            case "LARGE":
+                for (int i = 0; i < 200; i++) {
+                    products.add(newCartProductRequest(String.valueOf(i % 8 + 1), i % 5 + 1));
+                }
+                break;
+            case "DP":
+                int[] amounts = {6, 5, 4, 3, 2, 2, 1};
+                for (int i = 0; i < amounts.length; i++) {
+                    products.add(newCartProductRequest(String.valueOf(i + 1), amounts[i]));
+                }
+                break;
+            case "PATHOLOGICAL":
+                for (int i = 0; i < 7; i++) {
+                    products.add(newCartProductRequest(String.valueOf(i + 1), 999999999 - i * 1000));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cart " + cart);
+        }
+
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(products);
+
+        return request;
+    }
+
+    private static CartProductRequest newCartProductRequest(String productId, int amount) {
+        CartProductRequest cartProductRequest = new CartProductRequest();
+        cartProductRequest.setProductId(productId);
+        cartProductRequest.setAmount(amount);
+
+        return cartProductRequest;
+    }
+}
@@ -0,0 +1,136 @@
+package com.sellsuki.homework.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * send POST requests with the bodies in turn and record latency in microseconds.
+ *
+ * closed loop: every worker sends the next request as soon as the last one is answered,
+ * the load goes down when the server is slow.
+ * open loop: requests are scheduled at a fixed rate and the latency is from the scheduled time, not the time
+ * it is really sent, so a stalled server is not hidden by the workers that wait for it (coordinated omission).
+ * workers must be enough for rate * latency
+ */
+public class LoadGenerator {
+
+    // latency up to 1 minute in microseconds with 3 significant digits
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final URL url;
+
+    private final List<byte[]> bodies;
+
+    private final int workers;
+
+    // requests per second for open loop, 0 is closed loop
+    private final int rate;
+
+    private final Recorder recorder = new Recorder(HIGHEST_LATENCY, 3);
+
+    private final AtomicLong next = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    public LoadGenerator(URL url, List<byte[]> bodies, int workers, int rate) {
+        this.url = url;
+        this.bodies = bodies;
+        this.workers = workers;
+        this.rate = rate;
+    }
+
+    /*
+     * run for warmUp seconds and drop the latencies, then run for duration seconds.
+     * return the latencies of the duration
+     */
+    public Histogram run(long warmUp, long duration) throws InterruptedException {
+        long startedAt = System.nanoTime();
+        long warmUpEndAt = startedAt + TimeUnit.SECONDS.toNanos(warmUp);
+        long endAt = warmUpEndAt + TimeUnit.SECONDS.toNanos(duration);
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(() -> {
+                while (true) {
+                    long index = next.getAndIncrement();
+                    long scheduledAt = rate > 0 ? startedAt + index * interval : System.nanoTime();
+                    if (scheduledAt >= endAt) {
+                        return;
+                    }
+                    long wait = scheduledAt - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+
+                    boolean success = send(bodies.get((int) (index % bodies.size())));
+                    recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt), HIGHEST_LATENCY));
+                    if (!success) {
+                        errorCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        long sleep = warmUpEndAt - System.nanoTime();
+        if (sleep > 0) {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        }
+        recorder.reset();
+        errorCount.set(0);
+
+        executor.shutdown();
+        executor.awaitTermination(duration + 60, TimeUnit.SECONDS);
+
+        return recorder.getIntervalHistogram();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    private boolean send(byte[] body) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+
+            int status = connection.getResponseCode();
+            // read the whole body so the connection goes back to keep alive pool
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                drain(in);
+            }
+
+            return status == 200;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            byte[] buffer = new byte[8192];
+            while (input.read(buffer) != -1) {
+                // skip
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.sellsuki.homework.loadtest;
+
+import com.sellsuki.homework.HomeworkApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * end to end load test of POST /api/cart without network: start the stub book list api, boot the application
+ * against it, drive it with LoadGenerator and print latency percentiles and throughput.
+ *
+ * mvn -Ploadtest test-compile exec:java -Dloadtest.mode=open -Dloadtest.rate=2000
+ *
+ * options (system properties) with default:
+ * loadtest.mode=closed        closed or open loop
+ * loadtest.workers=32         number of client threads
+ * loadtest.rate=1000          requests per second for open loop
+ * loadtest.warmup=10          seconds, latencies are dropped
+ * loadtest.duration=30        seconds that are measured
+ * loadtest.path=/api/cart     /api/cart or /api/cart/async
+ * loadtest.max-p99=0          fail when p99 is more than this in milliseconds, 0 is no check
+ * loadtest.histogram=         file to write the full percentile distribution (hdr histogram plotter format)
+ * stub.books=1000             number of books in the stub book list, book 1 to 7 are promotion books
+ * stub.latency=50             milliseconds of every book list call
+ * stub.error-rate=0           0 to 1, part of book list calls that fail with 500
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty("loadtest.mode", "closed");
+        int workers = Integer.getInteger("loadtest.workers", 32);
+        int rate = "open".equals(mode) ? Integer.getInteger("loadtest.rate", 1000) : 0;
+        long warmUp = Long.getLong("loadtest.warmup", 10);
+        long duration = Long.getLong("loadtest.duration", 30);
+        String path = System.getProperty("loadtest.path", "/api/cart");
+        double maxP99 = Double.parseDouble(System.getProperty("loadtest.max-p99", "0"));
+        String histogramFile = System.getProperty("loadtest.histogram", "");
+
+        StubCatalogServer stub = new StubCatalogServer(
+                Integer.getInteger("stub.books", 1000),
+                Long.getLong("stub.latency", 50),
+                Double.parseDouble(System.getProperty("stub.error-rate", "0")));
+        stub.start();
+
+        ConfigurableApplicationContext context = null;
+        try {
+            // system properties are used before application.properties. no journal and snapshot file,
+            // every run starts with the book list from the stub
+            System.setProperty("server.port", "0");
+            System.setProperty("booklist.endpoint", stub.getUrl());
+            System.setProperty("promotion.bookid", "1,2,3,4,5,6,7");
+            System.setProperty("promotion.rules.file", "");
+            System.setProperty("cart.journal.dir", "");
+            System.setProperty("catalog.snapshot.file", "");
+            context = SpringApplication.run(HomeworkApplication.class, args);
+
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            URL url = new URL("http://127.0.0.1:" + port + path);
+
+            // HttpURLConnection keeps only 5 idle connections by default, keep one for every worker
+            System.setProperty("http.maxConnections", String.valueOf(workers));
+            LoadGenerator generator = new LoadGenerator(url, generateCarts(stub.getBooks()), workers, rate);
+            Histogram histogram = generator.run(warmUp, duration);
+
+            PrintStream out = System.out;
+            out.printf("%n%s loop %s, %d workers%s, %d s (after %d s warm up)%n", mode, path, workers,
+                    rate > 0 ? ", " + rate + " requests/s" : "", duration, warmUp);
+            out.printf("requests   %d (%d errors), %.1f requests/s%n", histogram.getTotalCount(), generator.getErrorCount(),
+                    histogram.getTotalCount() / (double) duration);
+            out.printf("latency ms mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, p99.99 %.2f, max %.2f%n",
+                    histogram.getMean() / 1000,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getValueAtPercentile(99.99) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+            out.printf("book list  %d calls (%d errors)%n", stub.getRequestCount(), stub.getErrorCount());
+
+            if (!histogramFile.isEmpty()) {
+                try (PrintStream file = new PrintStream(new FileOutputStream(histogramFile), true, "UTF-8")) {
+                    // values are in microseconds, print in milliseconds
+                    histogram.outputPercentileDistribution(file, 1000.0);
+                }
+            }
+
+            // exception fails the maven build, so a ci job can catch latency regression
+            if (maxP99 > 0 && histogram.getValueAtPercentile(99) / 1000.0 > maxP99) {
+                throw new IllegalStateException(String.format("p99 %.2f ms is more than %.2f ms",
+                        histogram.getValueAtPercentile(99) / 1000.0, maxP99));
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            stub.stop();
+        }
+    }
+
+    // same carts for every run, 1 to 8 lines of the first 50 books (promotion books are many of them)
+    private static List<byte[]> generateCarts(int books) {
+        Random random = new Random(42);
+        int titles = Math.min(books, 50);
+        List<byte[]> carts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder json = new StringBuilder("{\"products\":[");
+            int lines = 1 + random.nextInt(8);
+            for (int line = 0; line < lines; line++) {
+                if (line > 0) {
+                    json.append(',');
+                }
+                int productId = random.nextBoolean() ? 1 + random.nextInt(Math.min(titles, 7)) : 1 + random.nextInt(titles);
+                json.append("{\"productId\":\"").append(productId)
+                        .append("\",\"amount\":\"").append(1 + random.nextInt(3)).append("\"}");
+            }
+            json.append("]}");
+            carts.add(json.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        return carts;
+    }
+}
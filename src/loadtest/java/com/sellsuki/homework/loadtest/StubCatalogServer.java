@@ -0,0 +1,115 @@
+package com.sellsuki.homework.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * book list api on localhost for load test, same shape as src/test/resources/response/books.json.
+ * book ids are 1 to books, every call waits latency milliseconds and fails with 500 at errorRate (0 to 1)
+ */
+public class StubCatalogServer {
+
+    private final int books;
+
+    private final long latency;
+
+    private final double errorRate;
+
+    private final byte[] body;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public StubCatalogServer(int books, long latency, double errorRate) {
+        this.books = books;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.body = generateBooks(books);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/books", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/books";
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errorCount.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] generateBooks(int books) {
+        StringBuilder json = new StringBuilder(books * 80).append("{\"books\":[");
+        for (int id = 1; id <= books; id++) {
+            if (id > 1) {
+                json.append(',');
+            }
+            json.append("{\"cover\":\"cover\",\"price\":\"").append(id * 100 % 1000 + 100)
+                    .append("\",\"title\":\"Book (").append(id).append(")\",\"id\":\"").append(id).append("\"}");
+        }
+        json.append("]}");
+
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
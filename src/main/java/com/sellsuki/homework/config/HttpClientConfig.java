@@ -0,0 +1,104 @@
+package com.sellsuki.homework.config;
+
+import com.sellsuki.homework.utils.Constants;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Autowired
+    private HttpClientMetrics httpClientMetrics;
+
+    @Value(Constants.HTTP_CLIENT_MAX_TOTAL)
+    private int maxTotal;
+
+    @Value(Constants.HTTP_CLIENT_MAX_PER_ROUTE)
+    private int maxPerRoute;
+
+    @Value(Constants.HTTP_CLIENT_CONNECT_TIMEOUT)
+    private int connectTimeout;
+
+    @Value(Constants.HTTP_CLIENT_READ_TIMEOUT)
+    private int readTimeout;
+
+    @Value(Constants.HTTP_CLIENT_CONNECTION_REQUEST_TIMEOUT)
+    private int connectionRequestTimeout;
+
+    @Value(Constants.HTTP_CLIENT_KEEP_ALIVE)
+    private long keepAlive;
+
+    @Bean
+    public PoolingHttpClientConnectionManager poolingConnectionManager() {
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                .build();
+
+        // count every new connection, the other requests reuse connection from the pool
+        HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory = (route, config) -> {
+            httpClientMetrics.connectionCreated();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        };
+
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry, connectionFactory);
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+        return connectionManager;
+    }
+
+    /*
+     * http client keep connection alive in the pool, use keep alive from server response
+     * or ${http.client.keep-alive} when server not send it.
+     *
+     * gzip and deflate response is decoded by http client (content compression is enabled by default)
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager poolingConnectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(poolingConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? duration : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> httpClientMetrics.requestSent())
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+}
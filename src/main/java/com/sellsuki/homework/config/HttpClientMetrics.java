@@ -0,0 +1,34 @@
+package com.sellsuki.homework.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class HttpClientMetrics {
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong connectionCreatedCount = new AtomicLong();
+
+    public void requestSent() {
+        requestCount.incrementAndGet();
+    }
+
+    public void connectionCreated() {
+        connectionCreatedCount.incrementAndGet();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getConnectionCreatedCount() {
+        return connectionCreatedCount.get();
+    }
+
+    // request that not create new connection is sent on a pooled connection, no tcp/tls handshake
+    public long getConnectionReusedCount() {
+        return Math.max(0, requestCount.get() - connectionCreatedCount.get());
+    }
+}
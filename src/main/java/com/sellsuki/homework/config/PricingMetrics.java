@@ -0,0 +1,81 @@
+package com.sellsuki.homework.config;
+
+import com.sellsuki.homework.utils.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * histograms of every stage of cart pricing, times are in microseconds.
+ * shown at {domain}/api/monitor/metrics
+ */
+@Component
+public class PricingMetrics {
+
+    // call of book list api until the index is built, also 304 response
+    private final Histogram catalogFetchTime = new Histogram();
+
+    // read book list json to the index, only 200 response
+    private final Histogram bookListParseTime = new Histogram();
+
+    // number of books in the index that is built from book list api
+    private final Histogram catalogSize = new Histogram();
+
+    // number of lines in a cart request
+    private final Histogram cartLines = new Histogram();
+
+    // number of bundles of promotion books in a cart (largest amount of one title in every promotion group)
+    private final Histogram promotionRounds = new Histogram();
+
+    // total price and discount of a cart that is not in quote cache
+    private final Histogram pricingTime = new Histogram();
+
+    // products of the response from the priced cart
+    private final Histogram responseBuildTime = new Histogram();
+
+    // whole cart in CartService with catalog ready, from request to response
+    private final Histogram cartTime = new Histogram();
+
+    // POST /api/cart and /api/cart/async in CartController, also wait for catalog
+    private final Histogram cartRequestTime = new Histogram();
+
+    public static long elapsedMicros(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt);
+    }
+
+    public Histogram getCatalogFetchTime() {
+        return catalogFetchTime;
+    }
+
+    public Histogram getBookListParseTime() {
+        return bookListParseTime;
+    }
+
+    public Histogram getCatalogSize() {
+        return catalogSize;
+    }
+
+    public Histogram getCartLines() {
+        return cartLines;
+    }
+
+    public Histogram getPromotionRounds() {
+        return promotionRounds;
+    }
+
+    public Histogram getPricingTime() {
+        return pricingTime;
+    }
+
+    public Histogram getResponseBuildTime() {
+        return responseBuildTime;
+    }
+
+    public Histogram getCartTime() {
+        return cartTime;
+    }
+
+    public Histogram getCartRequestTime() {
+        return cartRequestTime;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sellsuki.homework.config;
+
+import com.sellsuki.homework.utils.Constants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+@Configuration
+public class PricingPoolConfig {
+
+    // number of threads for pricing a big batch, 0 is the number of processors
+    @Value(Constants.CART_BATCH_PARALLELISM)
+    private int parallelism;
+
+    /*
+     * own pool for batch pricing, not the common pool, so a big batch cannot take the threads
+     * of parallel streams in the other parts of the application
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool pricingPool() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("cart-pricing-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+}
@@ -1,16 +1,24 @@
 package com.sellsuki.homework.controller;
 
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.exceptions.GatewayTimeoutException;
+import com.sellsuki.homework.request.CreateCartBatchRequest;
 import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartBatchResponse;
 import com.sellsuki.homework.response.CreateCartResponse;
 import com.sellsuki.homework.response.Response;
 import com.sellsuki.homework.service.CartService;
+import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.utils.Constants;
 import com.sellsuki.homework.utils.Protocol;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
 
@@ -21,6 +29,13 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    @Autowired
+    private PricingMetrics pricingMetrics;
+
+    // @Value get value from application.properties file with name is ${cart.async.timeout}
+    @Value(Constants.CART_ASYNC_TIMEOUT)
+    private long asyncTimeout;
+
     /*
      * declare route path if you'd like to call this api you can call this url {domain}/api/cart
      *
@@ -28,7 +43,44 @@ public class CartController {
      */
     @PostMapping(Protocol.CART)
     public ResponseEntity<Response<CreateCartResponse>> createCart(@RequestBody @Valid CreateCartRequest request) throws Exception {
+        long startedAt = System.nanoTime();
         Response<CreateCartResponse> response = new Response<>(cartService.createCart(request));
+        pricingMetrics.getCartRequestTime().record(PricingMetrics.elapsedMicros(startedAt));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /*
+     * same as {domain}/api/cart but the servlet thread is returned to tomcat while the catalog is loaded,
+     * the response is written when the cart is priced. error (also timeout) is the exception that is
+     * handled by GlobalExceptionHandler, so the error response is the same as /api/cart.
+     * timeout is 504, the book list api is slow and the client can try again
+     */
+    @PostMapping(Protocol.CART_ASYNC)
+    public DeferredResult<ResponseEntity<Response<CreateCartResponse>>> createCartAsync(@RequestBody @Valid CreateCartRequest request) {
+        DeferredResult<ResponseEntity<Response<CreateCartResponse>>> deferredResult =
+                new DeferredResult<>(asyncTimeout, new GatewayTimeoutException(ErrorType.CART_TIMEOUT));
+
+        long startedAt = System.nanoTime();
+        cartService.createCartAsync(request).whenComplete((response, error) -> {
+            if (error != null) {
+                deferredResult.setErrorResult(error);
+            } else {
+                pricingMetrics.getCartRequestTime().record(PricingMetrics.elapsedMicros(startedAt));
+                deferredResult.setResult(ResponseEntity.ok(new Response<>(response)));
+            }
+        });
+
+        return deferredResult;
+    }
+
+    /*
+     * price many carts in one call {domain}/api/cart/batch, every cart is priced with the same book list.
+     * error of one cart (e.g. product not found) is returned in errors of that cart, the other carts are still priced
+     */
+    @PostMapping(Protocol.CART_BATCH)
+    public ResponseEntity<Response<CreateCartBatchResponse>> createCarts(@RequestBody @Valid CreateCartBatchRequest request) throws Exception {
+        Response<CreateCartBatchResponse> response = new Response<>(cartService.createCarts(request));
 
         return ResponseEntity.ok(response);
     }
@@ -0,0 +1,56 @@
+package com.sellsuki.homework.controller;
+
+import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.response.CartSessionResponse;
+import com.sellsuki.homework.response.Response;
+import com.sellsuki.homework.service.CartSessionService;
+import com.sellsuki.homework.utils.Protocol;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+
+/*
+ * cart that is kept on server, client create the cart once then add or remove one line at a time
+ * and the cart is priced again from the line that is changed
+ */
+@RestController
+@RequestMapping(Protocol.API)
+public class CartSessionController {
+
+    @Autowired
+    private CartSessionService cartSessionService;
+
+    // {domain}/api/carts
+    @PostMapping(Protocol.CARTS)
+    public ResponseEntity<Response<CartSessionResponse>> createCart() throws Exception {
+        return ResponseEntity.ok(new Response<>(cartSessionService.createCart()));
+    }
+
+    // {domain}/api/carts/{cartId}
+    @GetMapping(Protocol.CARTS_ID)
+    public ResponseEntity<Response<CartSessionResponse>> getCart(@PathVariable String cartId) throws Exception {
+        return ResponseEntity.ok(new Response<>(cartSessionService.getCart(cartId)));
+    }
+
+    // {domain}/api/carts/{cartId}/lines, amount is added to the line of the same product
+    @PostMapping(Protocol.CARTS_LINES)
+    public ResponseEntity<Response<CartSessionResponse>> addLine(@PathVariable String cartId,
+                                                                 @RequestBody @Valid CartProductRequest request) throws Exception {
+        return ResponseEntity.ok(new Response<>(cartSessionService.addLine(cartId, request)));
+    }
+
+    // {domain}/api/carts/{cartId}/lines/{productId}
+    @DeleteMapping(Protocol.CARTS_LINE)
+    public ResponseEntity<Response<CartSessionResponse>> removeLine(@PathVariable String cartId,
+                                                                    @PathVariable String productId) throws Exception {
+        return ResponseEntity.ok(new Response<>(cartSessionService.removeLine(cartId, productId)));
+    }
+}
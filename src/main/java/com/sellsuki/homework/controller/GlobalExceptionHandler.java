@@ -1,10 +1,18 @@
 package com.sellsuki.homework.controller;
 
 import com.sellsuki.homework.exceptions.BadRequestException;
+import com.sellsuki.homework.exceptions.GatewayTimeoutException;
 import com.sellsuki.homework.exceptions.InternalServerErrorException;
+import com.sellsuki.homework.exceptions.NotFoundException;
 import com.sellsuki.homework.response.ErrorResponse;
+import com.sellsuki.homework.response.ErrorResponses;
 import com.sellsuki.homework.response.Response;
 import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.utils.Constants;
+import com.sellsuki.homework.utils.LogRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -12,13 +20,26 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.stream.Collectors;
 
-@ControllerAdvice // capture all exception in application
+/*
+ * capture all exception in application.
+ *
+ * error of ErrorType use the body that is built once (see ErrorResponses), so an error response costs
+ * about the same as a success response. unexpected error is logged with stack trace at most once per
+ * ${error.log.interval} for each exception class, with the number of the same errors that are not logged
+ */
+@ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    // @Value get value from application.properties file with name is ${error.log.interval}
+    @Value(Constants.ERROR_LOG_INTERVAL)
+    private long logInterval;
+
+    private final LogRateLimiter logRateLimiter = new LogRateLimiter();
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseBody
     public ResponseEntity<?> methodArgumentNotValidExceptionHandler(MethodArgumentNotValidException ex) {
@@ -32,50 +53,42 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(BadRequestException.class)
     @ResponseBody
     private ResponseEntity<?> badRequestException(BadRequestException ex) {
-        ErrorResponse error = new ErrorResponse(
-                ex.getErrorType().getCode(),
-                ex.getErrorType().getMessage()
-        );
-
-        List<ErrorResponse> errors = new ArrayList<>();
-        errors.add(error);
+        return new ResponseEntity<>(ErrorResponses.of(ex.getErrorType()), HttpStatus.BAD_REQUEST);
+    }
 
-        Response<?> response = new Response<>(errors);
+    @ExceptionHandler(NotFoundException.class)
+    @ResponseBody
+    private ResponseEntity<?> notFoundException(NotFoundException ex) {
+        return new ResponseEntity<>(ErrorResponses.of(ex.getErrorType()), HttpStatus.NOT_FOUND);
+    }
 
-        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    @ExceptionHandler(GatewayTimeoutException.class)
+    @ResponseBody
+    private ResponseEntity<?> gatewayTimeoutException(GatewayTimeoutException ex) {
+        return new ResponseEntity<>(ErrorResponses.of(ex.getErrorType()), HttpStatus.GATEWAY_TIMEOUT);
     }
 
     @ExceptionHandler(InternalServerErrorException.class)
     @ResponseBody
     private ResponseEntity<?> InternalException(InternalServerErrorException ex) {
-        ErrorResponse error = new ErrorResponse(
-                ex.getErrorType().getCode(),
-                ex.getErrorType().getMessage()
-        );
-
-        List<ErrorResponse> errors = new ArrayList<>();
-        errors.add(error);
-
-        Response<?> response = new Response<>(errors);
+        long suppressed = logRateLimiter.tryAcquire(ex.getErrorType(), logInterval);
+        if (suppressed >= 0) {
+            logger.warn("Request failed code={} message=\"{}\" notLogged={}",
+                    ex.getErrorType().getCode(), ex.getErrorType().getMessage(), suppressed);
+        }
 
-        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(ErrorResponses.of(ex.getErrorType()), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     @ExceptionHandler(Exception.class)
     @ResponseBody
     public ResponseEntity<Response> defaultExceptionHandler(Exception ex) {
-        ex.printStackTrace();
-
-        ErrorResponse error = new ErrorResponse(
-                ErrorType.INTERNAL_SERVER_ERROR.getCode(),
-                ErrorType.INTERNAL_SERVER_ERROR.getMessage()
-        );
-
-        List<ErrorResponse> errors = new ArrayList<>();
-        errors.add(error);
-
-        Response<?> response = new Response<>(errors);
+        long suppressed = logRateLimiter.tryAcquire(ex.getClass(), logInterval);
+        if (suppressed >= 0) {
+            logger.error("Unexpected error type={} message=\"{}\" notLogged={}",
+                    ex.getClass().getName(), ex.getMessage(), suppressed, ex);
+        }
 
-        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(ErrorResponses.of(ErrorType.INTERNAL_SERVER_ERROR), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 }
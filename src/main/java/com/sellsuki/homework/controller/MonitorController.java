@@ -0,0 +1,174 @@
+package com.sellsuki.homework.controller;
+
+import com.sellsuki.homework.config.HttpClientMetrics;
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.model.Catalog;
+import com.sellsuki.homework.response.CatalogStatusResponse;
+import com.sellsuki.homework.response.HistogramResponse;
+import com.sellsuki.homework.response.HttpClientStatusResponse;
+import com.sellsuki.homework.response.PricingMetricsResponse;
+import com.sellsuki.homework.response.QuoteCacheStatusResponse;
+import com.sellsuki.homework.response.ReadinessResponse;
+import com.sellsuki.homework.response.Response;
+import com.sellsuki.homework.service.BookService;
+import com.sellsuki.homework.service.CatalogService;
+import com.sellsuki.homework.service.QuoteService;
+import com.sellsuki.homework.service.WarmUpService;
+import com.sellsuki.homework.utils.CircuitBreaker;
+import com.sellsuki.homework.utils.Histogram;
+import com.sellsuki.homework.utils.Protocol;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(Protocol.API)
+public class MonitorController {
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private QuoteService quoteService;
+
+    @Autowired
+    private WarmUpService warmUpService;
+
+    @Autowired
+    private PoolingHttpClientConnectionManager poolingConnectionManager;
+
+    @Autowired
+    private HttpClientMetrics httpClientMetrics;
+
+    @Autowired
+    private PricingMetrics pricingMetrics;
+
+    /*
+     * status of catalog cache, call this url {domain}/api/monitor/catalog
+     *
+     * coalescedCount is number of callers that wait for the running fetch instead of call book list api again
+     * notModifiedCount is number of 304 response from book list api, bytesSaved is size of body that not downloaded
+     * breakerState is OPEN when book list api is not called because it failed too many times in a row
+     */
+    @GetMapping(Protocol.MONITOR_CATALOG)
+    public ResponseEntity<Response<CatalogStatusResponse>> getCatalogStatus() {
+        Catalog catalog = catalogService.getCatalog();
+
+        CatalogStatusResponse status = new CatalogStatusResponse();
+        if (catalog != null) {
+            status.setSize(catalog.getIndex().size());
+            status.setSkippedCount(catalog.getIndex().getSkippedCount());
+            status.setLoadedAt(catalog.getLoadedAt());
+        }
+        status.setFetchCount(catalogService.getFetchCount());
+        status.setCoalescedCount(catalogService.getCoalescedCount());
+        status.setModifiedCount(bookService.getModifiedCount());
+        status.setNotModifiedCount(bookService.getNotModifiedCount());
+        status.setBytesSaved(bookService.getBytesSaved());
+
+        CircuitBreaker circuitBreaker = catalogService.getCircuitBreaker();
+        status.setBreakerState(circuitBreaker.getState().name());
+        status.setBreakerConsecutiveFailures(circuitBreaker.getConsecutiveFailures());
+        status.setBreakerOpenedAt(circuitBreaker.getOpenedAt());
+
+        return ResponseEntity.ok(new Response<>(status));
+    }
+
+    /*
+     * status of pooled http client, call this url {domain}/api/monitor/http-client
+     *
+     * connectionReusedCount is number of requests that sent on a connection from the pool
+     */
+    @GetMapping(Protocol.MONITOR_HTTP_CLIENT)
+    public ResponseEntity<Response<HttpClientStatusResponse>> getHttpClientStatus() {
+        PoolStats poolStats = poolingConnectionManager.getTotalStats();
+
+        HttpClientStatusResponse status = new HttpClientStatusResponse();
+        status.setLeased(poolStats.getLeased());
+        status.setAvailable(poolStats.getAvailable());
+        status.setPending(poolStats.getPending());
+        status.setMax(poolStats.getMax());
+        status.setRequestCount(httpClientMetrics.getRequestCount());
+        status.setConnectionCreatedCount(httpClientMetrics.getConnectionCreatedCount());
+        status.setConnectionReusedCount(httpClientMetrics.getConnectionReusedCount());
+
+        return ResponseEntity.ok(new Response<>(status));
+    }
+
+    /*
+     * status of quote cache, call this url {domain}/api/monitor/quote-cache
+     *
+     * invalidationCount is number of times all quotes are removed because catalog or promotion rules are changed
+     */
+    @GetMapping(Protocol.MONITOR_QUOTE_CACHE)
+    public ResponseEntity<Response<QuoteCacheStatusResponse>> getQuoteCacheStatus() {
+        QuoteCacheStatusResponse status = new QuoteCacheStatusResponse();
+        status.setSize(quoteService.getSize());
+        status.setHitCount(quoteService.getHitCount());
+        status.setMissCount(quoteService.getMissCount());
+        status.setEvictionCount(quoteService.getEvictionCount());
+        status.setInvalidationCount(quoteService.getInvalidationCount());
+
+        return ResponseEntity.ok(new Response<>(status));
+    }
+
+    /*
+     * histograms of every stage of cart pricing since start, call this url {domain}/api/monitor/metrics
+     *
+     * times are in microseconds, percentiles are at most 6.25% more than the real value (see Histogram)
+     */
+    @GetMapping(Protocol.MONITOR_METRICS)
+    public ResponseEntity<Response<PricingMetricsResponse>> getPricingMetrics() {
+        PricingMetricsResponse metrics = new PricingMetricsResponse();
+        metrics.setCatalogFetchTime(toHistogramResponse(pricingMetrics.getCatalogFetchTime()));
+        metrics.setBookListParseTime(toHistogramResponse(pricingMetrics.getBookListParseTime()));
+        metrics.setCatalogSize(toHistogramResponse(pricingMetrics.getCatalogSize()));
+        metrics.setCartLines(toHistogramResponse(pricingMetrics.getCartLines()));
+        metrics.setPromotionRounds(toHistogramResponse(pricingMetrics.getPromotionRounds()));
+        metrics.setPricingTime(toHistogramResponse(pricingMetrics.getPricingTime()));
+        metrics.setResponseBuildTime(toHistogramResponse(pricingMetrics.getResponseBuildTime()));
+        metrics.setCartTime(toHistogramResponse(pricingMetrics.getCartTime()));
+        metrics.setCartRequestTime(toHistogramResponse(pricingMetrics.getCartRequestTime()));
+
+        return ResponseEntity.ok(new Response<>(metrics));
+    }
+
+    /*
+     * readiness for load balancer, call this url {domain}/api/monitor/ready
+     *
+     * 503 until warm up is finished, then 200. warmUpTime is in milliseconds
+     */
+    @GetMapping(Protocol.MONITOR_READY)
+    public ResponseEntity<Response<ReadinessResponse>> getReadiness() {
+        ReadinessResponse status = new ReadinessResponse();
+        status.setReady(warmUpService.isReady());
+        status.setWarmUpCarts(warmUpService.getWarmUpCarts());
+        status.setWarmUpTime(warmUpService.getWarmUpTime());
+
+        HttpStatus httpStatus = status.getReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return new ResponseEntity<>(new Response<>(status), httpStatus);
+    }
+
+    private HistogramResponse toHistogramResponse(Histogram histogram) {
+        Histogram.Snapshot snapshot = histogram.snapshot();
+
+        HistogramResponse response = new HistogramResponse();
+        response.setCount(snapshot.getCount());
+        response.setMean(snapshot.getMean());
+        response.setP50(snapshot.getValueAtPercentile(50));
+        response.setP90(snapshot.getValueAtPercentile(90));
+        response.setP99(snapshot.getValueAtPercentile(99));
+        response.setP999(snapshot.getValueAtPercentile(99.9));
+        response.setMax(snapshot.getMax());
+
+        return response;
+    }
+}
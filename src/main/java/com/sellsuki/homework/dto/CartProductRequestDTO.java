@@ -2,12 +2,22 @@ package com.sellsuki.homework.dto;
 
 import lombok.Data;
 
+// one line of the cart on the pricing path, primitive fields so no boxing per line
 @Data
 public class CartProductRequestDTO {
 
     private String productId;
 
-    private Integer amount;
+    // slot of book in catalog index
+    private int slot;
 
-    private Double price;
+    private int amount;
+
+    // price of one book in minor unit (satang)
+    private long priceMinor;
+
+    private boolean promotion;
+
+    // index of promotion group in PromotionConfig of catalog index
+    private int promotionGroup;
 }
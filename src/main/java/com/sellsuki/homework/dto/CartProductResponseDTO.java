@@ -1,5 +1,7 @@
 package com.sellsuki.homework.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Data;
 
 @Data
@@ -9,7 +11,9 @@ public class CartProductResponseDTO {
 
     private String title;
 
-    private String amount;
+    // written as json string, the same as before
+    @JsonSerialize(using = ToStringSerializer.class)
+    private int amount;
 
     private String price;
 
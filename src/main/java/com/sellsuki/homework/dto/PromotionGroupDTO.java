@@ -0,0 +1,16 @@
+package com.sellsuki.homework.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PromotionGroupDTO {
+
+    private String name;
+
+    private List<String> productIds;
+
+    // discount percent by number of unique titles in a bundle, index 0 is not used
+    private List<Integer> percents;
+}
@@ -0,0 +1,12 @@
+package com.sellsuki.homework.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// promotion rules file, see promotion.rules.file in application.properties
+@Data
+public class PromotionRulesDTO {
+
+    private List<PromotionGroupDTO> groups;
+}
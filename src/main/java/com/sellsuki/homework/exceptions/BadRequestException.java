@@ -2,16 +2,20 @@ package com.sellsuki.homework.exceptions;
 
 import com.sellsuki.homework.types.ErrorType;
 
+/*
+ * expected error of a request, the error type is the whole story so no stack trace is filled (it is the most
+ * cost of an exception) and no suppressed exception is kept
+ */
 public class BadRequestException extends Exception {
 
-    private ErrorType errorType;
+    private final ErrorType errorType;
 
     public BadRequestException(ErrorType errorType) {
-        super(errorType.getMessage());
+        super(errorType.getMessage(), null, false, false);
         this.errorType = errorType;
     }
 
     public ErrorType getErrorType() {
         return errorType;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.sellsuki.homework.exceptions;
+
+import com.sellsuki.homework.types.ErrorType;
+
+// book list api does not answer in time, the client can try again later. no stack trace like BadRequestException
+public class GatewayTimeoutException extends Exception {
+
+    private final ErrorType errorType;
+
+    public GatewayTimeoutException(ErrorType errorType) {
+        super(errorType.getMessage(), null, false, false);
+        this.errorType = errorType;
+    }
+
+    public ErrorType getErrorType() {
+        return errorType;
+    }
+}
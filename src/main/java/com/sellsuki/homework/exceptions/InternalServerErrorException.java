@@ -2,12 +2,13 @@ package com.sellsuki.homework.exceptions;
 
 import com.sellsuki.homework.types.ErrorType;
 
+// thrown for every request while book list api is down, no stack trace like BadRequestException
 public class InternalServerErrorException extends Exception {
 
-    private ErrorType errorType;
+    private final ErrorType errorType;
 
     public InternalServerErrorException(ErrorType errorType) {
-        super(errorType.getMessage());
+        super(errorType.getMessage(), null, false, false);
         this.errorType = errorType;
     }
 
@@ -0,0 +1,18 @@
+package com.sellsuki.homework.exceptions;
+
+import com.sellsuki.homework.types.ErrorType;
+
+// no stack trace like BadRequestException
+public class NotFoundException extends Exception {
+
+    private final ErrorType errorType;
+
+    public NotFoundException(ErrorType errorType) {
+        super(errorType.getMessage(), null, false, false);
+        this.errorType = errorType;
+    }
+
+    public ErrorType getErrorType() {
+        return errorType;
+    }
+}
@@ -0,0 +1,270 @@
+package com.sellsuki.homework.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/*
+ * cart that is kept on server between requests.
+ *
+ * the cart keeps running aggregates, so add or remove a line does not price the whole cart again:
+ * subtotal of non promotion books and promotion books, and for every promotion group its lines sorted by amount
+ * then price (that is the order bundle optimizer needs) with the discount of the group.
+ * update of the aggregates is O(log k) with k is number of lines and only marks the group of the line as changed,
+ * only the changed groups are priced again when the discount is read.
+ * prices and promotion groups are from the catalog the aggregates are built with, when catalog or promotion
+ * rules are changed the aggregates are built again once.
+ *
+ * not thread safe, caller must lock the session
+ */
+public class CartSession {
+
+    // order of BundleOptimizer.bestDiscountSorted, product id makes every line different
+    private static final Comparator<CartLine> BY_AMOUNT = Comparator
+            .comparingInt(CartLine::getAmount)
+            .thenComparingLong(CartLine::getPriceMinor)
+            .thenComparing(CartLine::getProductId);
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private long lastAccessedAt;
+
+    // lines in the order they are added
+    private final Map<String, CartLine> lines = new LinkedHashMap<>();
+
+    // index of group in the promotion rules to its lines
+    private final Map<Integer, GroupLines> promotionGroups = new HashMap<>();
+
+    // groups that have a line changed after their discount was priced
+    private final List<GroupLines> changedGroups = new ArrayList<>();
+
+    private long nonPromotionSubtotal;
+
+    private long promotionSubtotal;
+
+    // sum of discount of every group in percent of minor unit, groups in changedGroups are not up to date
+    private long promotionDiscount;
+
+    // catalog and promotion rules version of prices and groups in the lines, -1 is not built yet
+    private long catalogVersion = -1;
+
+    private long promotionVersion = -1;
+
+    public CartSession(String id, long now) {
+        this.id = id;
+        this.lastAccessedAt = now;
+    }
+
+    public void touch(long now) {
+        lastAccessedAt = now;
+    }
+
+    public boolean isExpired(long ttl, long now) {
+        return now - lastAccessedAt >= ttl;
+    }
+
+    /*
+     * set price and promotion group of every line again when catalog or promotion rules are changed,
+     * line of the book that is not in the catalog anymore is removed.
+     * return product ids of the removed lines, caller writes the removal to the journal
+     */
+    public List<String> reindex(CatalogIndex catalogIndex) {
+        if (catalogVersion == catalogIndex.getVersion()
+                && promotionVersion == catalogIndex.getPromotionConfig().getVersion()) {
+            return Collections.emptyList();
+        }
+
+        List<CartLine> current = new ArrayList<>(lines.values());
+        lines.clear();
+        promotionGroups.clear();
+        changedGroups.clear();
+        nonPromotionSubtotal = 0;
+        promotionSubtotal = 0;
+        promotionDiscount = 0;
+        catalogVersion = catalogIndex.getVersion();
+        promotionVersion = catalogIndex.getPromotionConfig().getVersion();
+
+        List<String> removedProductIds = new ArrayList<>();
+        for (CartLine line : current) {
+            int slot = catalogIndex.slotOf(line.productId);
+            if (slot >= 0) {
+                addLine(line.productId, slot, line.amount, catalogIndex);
+            } else {
+                removedProductIds.add(line.productId);
+            }
+        }
+
+        return removedProductIds;
+    }
+
+    // amount of the line of the book, 0 when there is no line
+    public int getAmount(String productId) {
+        CartLine line = lines.get(productId);
+        return line == null ? 0 : line.amount;
+    }
+
+    // add amount to the line of the book and return amount of the line, call reindex with the same catalog before.
+    // caller checks the new amount is not too large with getAmount
+    public int addLine(String productId, int slot, int amount, CatalogIndex catalogIndex) {
+        CartLine line = lines.get(productId);
+        if (line == null) {
+            line = new CartLine(productId, slot, catalogIndex.getPriceMinor(slot), catalogIndex.getPromotionGroup(slot));
+            lines.put(productId, line);
+        } else {
+            untrack(line);
+        }
+
+        line.amount = Math.addExact(line.amount, amount);
+        track(line);
+
+        return line.amount;
+    }
+
+    /*
+     * set amount of the line from the journal. price and promotion group are not known yet,
+     * the line is counted as 0 until the cart is reindexed with the catalog
+     */
+    public void restoreLine(String productId, int amount) {
+        CartLine line = lines.get(productId);
+        if (line != null) {
+            untrack(line);
+        }
+
+        // same key keeps the line in its place
+        line = new CartLine(productId, -1, 0, PromotionConfig.NO_GROUP);
+        line.amount = amount;
+        lines.put(productId, line);
+        catalogVersion = -1;
+        promotionVersion = -1;
+    }
+
+    // return false when there is no line of the book
+    public boolean removeLine(String productId) {
+        CartLine line = lines.remove(productId);
+        if (line == null) {
+            return false;
+        }
+
+        untrack(line);
+        return true;
+    }
+
+    public List<CartLine> getLines() {
+        return new ArrayList<>(lines.values());
+    }
+
+    public long getSubtotal() {
+        return Math.addExact(nonPromotionSubtotal, promotionSubtotal);
+    }
+
+    /*
+     * discount of all promotion groups in percent of minor unit, groups are the groups of the promotion rules
+     * the cart is reindexed with. only the groups that are changed since the last call are priced again
+     */
+    public long getPromotionDiscount(List<PromotionGroup> groups) {
+        for (GroupLines group : changedGroups) {
+            promotionDiscount -= group.discount;
+            group.discount = group.price(groups.get(group.index));
+            promotionDiscount = Math.addExact(promotionDiscount, group.discount);
+            group.changed = false;
+        }
+        changedGroups.clear();
+
+        return promotionDiscount;
+    }
+
+    private void track(CartLine line) {
+        long lineTotal = Math.multiplyExact(line.priceMinor, (long) line.amount);
+        if (line.promotionGroup == PromotionConfig.NO_GROUP) {
+            nonPromotionSubtotal = Math.addExact(nonPromotionSubtotal, lineTotal);
+        } else {
+            promotionSubtotal = Math.addExact(promotionSubtotal, lineTotal);
+            GroupLines group = promotionGroups.computeIfAbsent(line.promotionGroup, GroupLines::new);
+            group.lines.add(line);
+            markChanged(group);
+        }
+    }
+
+    private void untrack(CartLine line) {
+        long lineTotal = line.priceMinor * line.amount;
+        if (line.promotionGroup == PromotionConfig.NO_GROUP) {
+            nonPromotionSubtotal -= lineTotal;
+        } else {
+            promotionSubtotal -= lineTotal;
+            GroupLines group = promotionGroups.get(line.promotionGroup);
+            group.lines.remove(line);
+            markChanged(group);
+        }
+    }
+
+    private void markChanged(GroupLines group) {
+        if (!group.changed) {
+            group.changed = true;
+            changedGroups.add(group);
+        }
+    }
+
+    // promotion lines of one group, the smaller amount is first, with the discount of the lines when it was priced
+    private static class GroupLines {
+
+        private final int index;
+
+        private final TreeSet<CartLine> lines = new TreeSet<>(BY_AMOUNT);
+
+        private long discount;
+
+        private boolean changed;
+
+        private GroupLines(int index) {
+            this.index = index;
+        }
+
+        private long price(PromotionGroup group) {
+            if (lines.isEmpty()) {
+                return 0;
+            }
+
+            // the arrays are kept in the memo of the optimizer, so they are new every time
+            long[] prices = new long[lines.size()];
+            int[] amounts = new int[lines.size()];
+            int count = 0;
+            for (CartLine line : lines) {
+                prices[count] = line.priceMinor;
+                amounts[count] = line.amount;
+                count++;
+            }
+
+            return group.getBundleOptimizer().bestDiscountSorted(prices, amounts);
+        }
+    }
+
+    @Getter
+    public static class CartLine {
+
+        private final String productId;
+
+        private final int slot;
+
+        private final long priceMinor;
+
+        private final int promotionGroup;
+
+        private int amount;
+
+        private CartLine(String productId, int slot, long priceMinor, int promotionGroup) {
+            this.productId = productId;
+            this.slot = slot;
+            this.priceMinor = priceMinor;
+            this.promotionGroup = promotionGroup;
+        }
+    }
+}
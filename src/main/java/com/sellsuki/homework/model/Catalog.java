@@ -0,0 +1,28 @@
+package com.sellsuki.homework.model;
+
+import lombok.Getter;
+
+/*
+ * immutable snapshot of book list. the snapshot is never changed after created,
+ * refresh catalog is create new snapshot and swap the reference
+ */
+@Getter
+public class Catalog {
+
+    private final CatalogIndex index;
+
+    private final long loadedAt;
+
+    // version of promotion config that promotion flags in the index are set from
+    private final long promotionVersion;
+
+    public Catalog(CatalogIndex index, long loadedAt, long promotionVersion) {
+        this.index = index;
+        this.loadedAt = loadedAt;
+        this.promotionVersion = promotionVersion;
+    }
+
+    public boolean isExpired(long ttl, long now) {
+        return now - loadedAt >= ttl;
+    }
+}
@@ -0,0 +1,248 @@
+package com.sellsuki.homework.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * compact and immutable book list, built once per refresh.
+ *
+ * every book has a slot number (0 to size - 1), the fields of a book are kept in arrays at that slot
+ * and price is parsed to minor unit (satang) once here, so pricing a cart is only one hash probe per line.
+ * slot of book id is found by open addressing table, no entry object per book like HashMap.
+ *
+ * one bad book does not fail the whole book list: book with no id, no price or price that is not a number,
+ * and book with an id that is already added (the first one is kept) are skipped and counted in skippedCount.
+ * skipped book is not found, so a cart with it gets product not found
+ */
+public class CatalogIndex {
+
+    private static final int EMPTY = -1;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    // new version for every book list that is built, same books with other promotion keep the version.
+    // book list api may send the same books again with 200, BookService keeps the last index then
+    private final long version;
+
+    private final String[] ids;
+
+    private final String[] titles;
+
+    private final String[] covers;
+
+    // price text from book list api, returned to client as it is
+    private final String[] prices;
+
+    private final long[] priceMinors;
+
+    // promotion group of book at the slot or PromotionConfig.NO_GROUP
+    private final int[] promotionGroups;
+
+    // promotion rules that promotion groups are set from
+    private final PromotionConfig promotionConfig;
+
+    // open addressing table, value is slot of book or EMPTY
+    private final int[] table;
+
+    // number of books from book list that are not in the index
+    private final int skippedCount;
+
+    private CatalogIndex(long version, String[] ids, String[] titles, String[] covers, String[] prices, long[] priceMinors,
+                         int[] promotionGroups, PromotionConfig promotionConfig, int[] table, int skippedCount) {
+        this.version = version;
+        this.ids = ids;
+        this.titles = titles;
+        this.covers = covers;
+        this.prices = prices;
+        this.priceMinors = priceMinors;
+        this.promotionGroups = promotionGroups;
+        this.promotionConfig = promotionConfig;
+        this.table = table;
+        this.skippedCount = skippedCount;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /*
+     * same books with promotion groups of the new rules, arrays of books are shared with this index
+     */
+    public CatalogIndex withPromotion(PromotionConfig promotionConfig) {
+        int[] promotionGroups = new int[ids.length];
+        for (int slot = 0; slot < ids.length; slot++) {
+            promotionGroups[slot] = promotionConfig.groupOf(ids[slot]);
+        }
+
+        return new CatalogIndex(version, ids, titles, covers, prices, priceMinors, promotionGroups, promotionConfig, table,
+                skippedCount);
+    }
+
+    // same books in the same order, so every cart has the same price with both indexes
+    public boolean sameBooks(CatalogIndex other) {
+        return Arrays.equals(ids, other.ids)
+                && Arrays.equals(titles, other.titles)
+                && Arrays.equals(covers, other.covers)
+                && Arrays.equals(prices, other.prices);
+    }
+
+    // return slot of the book id or -1 when not found
+    public int slotOf(String id) {
+        if (id == null) {
+            return EMPTY;
+        }
+
+        int mask = table.length - 1;
+        for (int i = spread(id.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == EMPTY || ids[slot].equals(id)) {
+                return slot;
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    public String getId(int slot) {
+        return ids[slot];
+    }
+
+    public String getTitle(int slot) {
+        return titles[slot];
+    }
+
+    public String getCover(int slot) {
+        return covers[slot];
+    }
+
+    public String getPrice(int slot) {
+        return prices[slot];
+    }
+
+    public long getPriceMinor(int slot) {
+        return priceMinors[slot];
+    }
+
+    public boolean isPromotion(int slot) {
+        return promotionGroups[slot] != PromotionConfig.NO_GROUP;
+    }
+
+    public int getPromotionGroup(int slot) {
+        return promotionGroups[slot];
+    }
+
+    public PromotionConfig getPromotionConfig() {
+        return promotionConfig;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public static class Builder {
+
+        // only for find duplicate id while building, not kept in the index
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        private String[] ids = new String[16];
+
+        private String[] titles = new String[16];
+
+        private String[] covers = new String[16];
+
+        private String[] prices = new String[16];
+
+        private long[] priceMinors = new long[16];
+
+        private int size;
+
+        private int skippedCount;
+
+        private Builder() {
+        }
+
+        // bad book and book with the id that is already added are skipped, see the class comment
+        public Builder add(Book book) {
+            if (book.getId() == null || book.getPrice() == null || slots.containsKey(book.getId())) {
+                skippedCount++;
+                return this;
+            }
+
+            long priceMinor;
+            try {
+                priceMinor = Money.parseMinor(book.getPrice());
+            } catch (NumberFormatException | ArithmeticException ex) {
+                skippedCount++;
+                return this;
+            }
+
+            if (size == ids.length) {
+                grow();
+            }
+            int slot = size++;
+            slots.put(book.getId(), slot);
+
+            ids[slot] = book.getId();
+            titles[slot] = book.getTitle();
+            covers[slot] = book.getCover();
+            prices[slot] = book.getPrice();
+            priceMinors[slot] = priceMinor;
+
+            return this;
+        }
+
+        public CatalogIndex build() {
+            // keep the table at most half full so probe is short
+            int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+            int[] table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            int mask = capacity - 1;
+            for (int slot = 0; slot < size; slot++) {
+                int i = spread(ids[slot].hashCode()) & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = slot;
+            }
+
+            // no promotion until withPromotion is called
+            int[] promotionGroups = new int[size];
+            Arrays.fill(promotionGroups, PromotionConfig.NO_GROUP);
+
+            return new CatalogIndex(
+                    VERSIONS.incrementAndGet(),
+                    Arrays.copyOf(ids, size),
+                    Arrays.copyOf(titles, size),
+                    Arrays.copyOf(covers, size),
+                    Arrays.copyOf(prices, size),
+                    Arrays.copyOf(priceMinors, size),
+                    promotionGroups,
+                    new PromotionConfig(Collections.emptyList(), 0),
+                    table,
+                    skippedCount
+            );
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            covers = Arrays.copyOf(covers, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            priceMinors = Arrays.copyOf(priceMinors, capacity);
+        }
+    }
+}
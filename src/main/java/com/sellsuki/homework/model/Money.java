@@ -0,0 +1,113 @@
+package com.sellsuki.homework.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/*
+ * amount of money in minor unit (satang), 350.50 is 35050.
+ *
+ * all prices are kept in long minor unit from catalog parse to response, so sum of price is exact
+ * and no boxed Double in calculation. percent of money is rounded with ROUNDING_MODE to minor unit
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    public static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long MINOR_PER_UNIT = 100;
+
+    private final long minor;
+
+    private Money(long minor) {
+        this.minor = minor;
+    }
+
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    public static Money parse(String amount) {
+        return ofMinor(parseMinor(amount));
+    }
+
+    // price text to minor unit, digit after SCALE is rounded with ROUNDING_MODE
+    public static long parseMinor(String amount) {
+        return new BigDecimal(amount.trim()).setScale(SCALE, ROUNDING_MODE).unscaledValue().longValueExact();
+    }
+
+    /*
+     * percent of amount in minor unit, rounded half up to minor unit.
+     * calculate with integer only so the same cart always get the same discount
+     */
+    public static long percentOf(long minor, int percent) {
+        return roundPercent(Math.multiplyExact(minor, percent));
+    }
+
+    // value in percent of minor unit (minor * percent) to minor unit, rounded half up
+    public static long roundPercent(long value) {
+        if (value >= 0) {
+            return (value + 50) / 100;
+        }
+        return -((-value + 50) / 100);
+    }
+
+    public long getMinor() {
+        return minor;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minor, other.minor));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minor, other.minor));
+    }
+
+    public Money times(long amount) {
+        return ofMinor(Math.multiplyExact(minor, amount));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, other.minor);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).minor == minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor);
+    }
+
+    /*
+     * same text as Double.toString for normal amount so response is not changed,
+     * 3000 is "30.0", 1650 is "16.5" and 1655 is "16.55" (but never use E notation for big amount)
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(24);
+        if (minor < 0) {
+            text.append('-');
+        }
+
+        long units = Math.abs(minor / MINOR_PER_UNIT);
+        long cents = Math.abs(minor % MINOR_PER_UNIT);
+        text.append(units).append('.');
+        if (cents % 10 == 0) {
+            text.append(cents / 10);
+        } else {
+            if (cents < 10) {
+                text.append('0');
+            }
+            text.append(cents);
+        }
+
+        return text.toString();
+    }
+}
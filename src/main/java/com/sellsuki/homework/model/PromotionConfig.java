@@ -0,0 +1,66 @@
+package com.sellsuki.homework.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * immutable snapshot of promotion rules, version is changed every time the rules are changed.
+ * the snapshot is swapped as a whole so request threads read all groups of the same version without lock
+ */
+@Getter
+public class PromotionConfig {
+
+    public static final int NO_GROUP = -1;
+
+    private final List<PromotionGroup> groups;
+
+    // product ids of every group
+    private final Set<String> productIds;
+
+    private final long version;
+
+    // product id to index of its group in groups
+    private final Map<String, Integer> groupIndexes;
+
+    public PromotionConfig(List<PromotionGroup> groups, long version) {
+        Map<String, Integer> groupIndexes = new HashMap<>();
+        for (int i = 0; i < groups.size(); i++) {
+            for (String productId : groups.get(i).getProductIds()) {
+                if (groupIndexes.putIfAbsent(productId, i) != null) {
+                    throw new IllegalArgumentException("Product " + productId + " is in more than one promotion group");
+                }
+            }
+        }
+
+        this.groups = Collections.unmodifiableList(groups);
+        this.productIds = Collections.unmodifiableSet(new HashSet<>(groupIndexes.keySet()));
+        this.version = version;
+        this.groupIndexes = Collections.unmodifiableMap(groupIndexes);
+    }
+
+    public boolean sameRules(List<PromotionGroup> otherGroups) {
+        if (groups.size() != otherGroups.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < groups.size(); i++) {
+            if (!groups.get(i).sameRules(otherGroups.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // return index of group of the product or NO_GROUP
+    public int groupOf(String productId) {
+        Integer groupIndex = groupIndexes.get(productId);
+        return groupIndex == null ? NO_GROUP : groupIndex;
+    }
+}
@@ -0,0 +1,47 @@
+package com.sellsuki.homework.model;
+
+import com.sellsuki.homework.utils.BundleOptimizer;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/*
+ * immutable promotion group, books in the same group are bundled together with the tiers of the group.
+ * books of different groups are never in the same bundle
+ */
+@Getter
+public class PromotionGroup {
+
+    private final String name;
+
+    private final Set<String> productIds;
+
+    // percents[number of unique titles] is discount percent, number that is not in the array has no discount
+    private final int[] percents;
+
+    private final BundleOptimizer bundleOptimizer;
+
+    public PromotionGroup(String name, Set<String> productIds, int[] percents, int memoSize, int maxStates) {
+        this.name = name;
+        this.productIds = Collections.unmodifiableSet(productIds);
+        this.percents = percents.clone();
+        this.bundleOptimizer = new BundleOptimizer(this.percents, memoSize, maxStates);
+    }
+
+    public int[] getPercents() {
+        return percents.clone();
+    }
+
+    // same name, books and tiers, the bundle optimizer is built from these so it gives the same discount
+    public boolean sameRules(PromotionGroup other) {
+        return name.equals(other.name)
+                && productIds.equals(other.productIds)
+                && Arrays.equals(percents, other.percents);
+    }
+
+    public int getPercent(int uniqueTitles) {
+        return uniqueTitles < percents.length ? percents[uniqueTitles] : 0;
+    }
+}
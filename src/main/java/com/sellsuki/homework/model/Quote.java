@@ -0,0 +1,20 @@
+package com.sellsuki.homework.model;
+
+import lombok.Getter;
+
+/*
+ * immutable price of a cart, same products and amounts with the same catalog and promotion rules
+ * always have the same quote
+ */
+@Getter
+public class Quote {
+
+    private final Money totalPrice;
+
+    private final Money discount;
+
+    public Quote(Money totalPrice, Money discount) {
+        this.totalPrice = totalPrice;
+        this.discount = discount;
+    }
+}
@@ -1,10 +1,15 @@
 package com.sellsuki.homework.request;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.sellsuki.homework.utils.AmountDeserializer;
 import lombok.Data;
 import org.hibernate.validator.constraints.NotBlank;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
-import javax.validation.constraints.Pattern;
 
 @Data
 public class CartProductRequest {
@@ -13,8 +18,12 @@ public class CartProductRequest {
     @NotBlank(message = "product id is required")
     private String productId;
 
-    // validate pattern must be number
+    // amount is parsed and checked once when json is read (see AmountDeserializer), wrong amount is read as 0.
+    // json is still a string like "2" when it is written
     @NotNull(message = "amount is required")
-    @Pattern(regexp = "^([1-9][0-9]{0,8})$", message = "amount is invalid")
-    private String amount;
+    @Min(value = 1, message = "amount is invalid")
+    @Max(value = AmountDeserializer.MAX_AMOUNT, message = "amount is invalid")
+    @JsonDeserialize(using = AmountDeserializer.class)
+    @JsonSerialize(using = ToStringSerializer.class)
+    private Integer amount;
 }
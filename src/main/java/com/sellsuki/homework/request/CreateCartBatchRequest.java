@@ -0,0 +1,15 @@
+package com.sellsuki.homework.request;
+
+import lombok.Data;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@Data
+public class CreateCartBatchRequest {
+
+    @Valid // validate every CreateCartRequest in the batch
+    @NotEmpty(message = "have no cart to price")
+    private List<CreateCartRequest> carts;
+}
@@ -0,0 +1,11 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class CartSessionResponse {
+
+    private String cartId;
+
+    private CreateCartResponse cart;
+}
@@ -0,0 +1,29 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class CatalogStatusResponse {
+
+    private Integer size;
+
+    private Integer skippedCount;
+
+    private Long loadedAt;
+
+    private Long fetchCount;
+
+    private Long coalescedCount;
+
+    private Long modifiedCount;
+
+    private Long notModifiedCount;
+
+    private Long bytesSaved;
+
+    private String breakerState;
+
+    private Integer breakerConsecutiveFailures;
+
+    private Long breakerOpenedAt;
+}
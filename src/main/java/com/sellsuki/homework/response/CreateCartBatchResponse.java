@@ -0,0 +1,12 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CreateCartBatchResponse {
+
+    // result of every cart in the same order as the request, data or errors of that cart
+    private List<Response<CreateCartResponse>> carts;
+}
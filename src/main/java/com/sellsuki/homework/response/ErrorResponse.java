@@ -1,8 +1,9 @@
 package com.sellsuki.homework.response;
 
-import lombok.Data;
+import lombok.Value;
 
-@Data
+// immutable, so the error of every ErrorType is built once and shared (see ErrorResponses)
+@Value
 public class ErrorResponse {
 
     private String code;
@@ -0,0 +1,29 @@
+package com.sellsuki.homework.response;
+
+import com.sellsuki.homework.types.ErrorType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+ * error body of every ErrorType is built once when the class is loaded. the body is immutable (unmodifiable list
+ * of immutable ErrorResponse), so all requests with the same error share it and nothing is created per error
+ */
+public class ErrorResponses {
+
+    private static final Map<ErrorType, Response<?>> RESPONSES = new EnumMap<>(ErrorType.class);
+
+    static {
+        for (ErrorType errorType : ErrorType.values()) {
+            ErrorResponse error = new ErrorResponse(errorType.getCode(), errorType.getMessage());
+            RESPONSES.put(errorType, new Response<Object>(Collections.singletonList(error)));
+        }
+    }
+
+    // the body has no data, so it is the response of any data type
+    @SuppressWarnings("unchecked")
+    public static <T> Response<T> of(ErrorType errorType) {
+        return (Response<T>) RESPONSES.get(errorType);
+    }
+}
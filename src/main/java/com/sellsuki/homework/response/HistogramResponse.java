@@ -0,0 +1,21 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class HistogramResponse {
+
+    private Long count;
+
+    private Double mean;
+
+    private Long p50;
+
+    private Long p90;
+
+    private Long p99;
+
+    private Long p999;
+
+    private Long max;
+}
@@ -0,0 +1,21 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class HttpClientStatusResponse {
+
+    private Integer leased;
+
+    private Integer available;
+
+    private Integer pending;
+
+    private Integer max;
+
+    private Long requestCount;
+
+    private Long connectionCreatedCount;
+
+    private Long connectionReusedCount;
+}
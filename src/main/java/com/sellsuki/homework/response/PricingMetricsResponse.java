@@ -0,0 +1,25 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class PricingMetricsResponse {
+
+    private HistogramResponse catalogFetchTime;
+
+    private HistogramResponse bookListParseTime;
+
+    private HistogramResponse catalogSize;
+
+    private HistogramResponse cartLines;
+
+    private HistogramResponse promotionRounds;
+
+    private HistogramResponse pricingTime;
+
+    private HistogramResponse responseBuildTime;
+
+    private HistogramResponse cartTime;
+
+    private HistogramResponse cartRequestTime;
+}
@@ -0,0 +1,17 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class QuoteCacheStatusResponse {
+
+    private Integer size;
+
+    private Long hitCount;
+
+    private Long missCount;
+
+    private Long evictionCount;
+
+    private Long invalidationCount;
+}
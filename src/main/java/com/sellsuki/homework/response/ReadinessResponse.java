@@ -0,0 +1,13 @@
+package com.sellsuki.homework.response;
+
+import lombok.Data;
+
+@Data
+public class ReadinessResponse {
+
+    private Boolean ready;
+
+    private Integer warmUpCarts;
+
+    private Long warmUpTime;
+}
@@ -1,11 +1,11 @@
 package com.sellsuki.homework.response;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import lombok.Data;
+import lombok.Value;
 
 import java.util.List;
 
-@Data
+@Value
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Response<T> {
 
@@ -15,9 +15,11 @@ public class Response<T> {
 
     public Response(T data) {
         this.data = data;
+        this.errors = null;
     }
 
     public Response(List<ErrorResponse> errors) {
+        this.data = null;
         this.errors = errors;
     }
 }
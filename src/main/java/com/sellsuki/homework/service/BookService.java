@@ -1,54 +1,225 @@
 package com.sellsuki.homework.service;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.sellsuki.homework.config.PricingMetrics;
 import com.sellsuki.homework.exceptions.InternalServerErrorException;
 import com.sellsuki.homework.model.Book;
-import com.sellsuki.homework.model.Product;
+import com.sellsuki.homework.model.CatalogIndex;
 import com.sellsuki.homework.types.ErrorType;
 import com.sellsuki.homework.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class BookService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BookService.class);
+
+    private static final String BOOKS_FIELD = "books";
+
+    // mapper is thread safe after configured, share it and the reader for all refreshes.
+    // unknown fields are skipped on purpose (not strict like the old default mapper): book list api may add
+    // fields to a book at any time and that must not stop the catalog refresh
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ObjectReader BOOK_READER = MAPPER.readerFor(Book.class);
+
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private PricingMetrics pricingMetrics;
+
     // @Value get value from application.properties file with name is ${booklist.endpoint}
     @Value(Constants.BOOK_LIST_ENDPOINT)
     private String url;
 
-    public Map<String, Book> getBookListFromAPI() throws Exception {
+    // validators of the last 200 response, send them back so book list api can answer 304 when nothing changed
+    private volatile LastResponse lastResponse;
+
+    private final AtomicLong modifiedCount = new AtomicLong();
+
+    private final AtomicLong notModifiedCount = new AtomicLong();
+
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public CatalogIndex getBookListFromAPI() throws Exception {
+        long startedAt = System.nanoTime();
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
-            headers.add("user-agent", "Mozilla/5.0");
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+            LastResponse last = lastResponse;
+
+            RequestCallback requestCallback = request -> {
+                HttpHeaders headers = request.getHeaders();
+                headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+                headers.add("user-agent", "Mozilla/5.0");
+                if (last != null) {
+                    if (last.etag != null) {
+                        headers.setIfNoneMatch(last.etag);
+                    }
+                    if (last.lastModified > 0) {
+                        headers.setIfModifiedSince(last.lastModified);
+                    }
+                }
+            };
+
+            ResponseExtractor<CatalogIndex> responseExtractor = response -> {
+                // book list is not changed, keep the parsed books from last time and skip download and parse body
+                if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && last != null) {
+                    notModifiedCount.incrementAndGet();
+                    bytesSaved.addAndGet(last.contentLength);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+                    return last.catalogIndex;
+                }
 
-            ObjectMapper mapper = new ObjectMapper();
-            Product product = mapper.readValue(response.getBody(), Product.class);
+                long parseStartedAt = System.nanoTime();
+                CountingInputStream body = new CountingInputStream(response.getBody());
+                CatalogIndex catalogIndex = readBooks(body);
+                pricingMetrics.getBookListParseTime().record(PricingMetrics.elapsedMicros(parseStartedAt));
+                pricingMetrics.getCatalogSize().record(catalogIndex.size());
 
-            return product.getBooks()
-                    .stream()
-                    .collect(
-                            Collectors.toMap(Book::getId, book -> book)
-                    );
+                // api without etag send the same books with 200, keep the last index so its version and
+                // the quotes that are priced with it are still good
+                if (last != null && catalogIndex.sameBooks(last.catalogIndex)) {
+                    catalogIndex = last.catalogIndex;
+                }
+
+                long contentLength = response.getHeaders().getContentLength();
+                lastResponse = new LastResponse(
+                        response.getHeaders().getETag(),
+                        response.getHeaders().getLastModified(),
+                        contentLength >= 0 ? contentLength : body.getCount(),
+                        catalogIndex
+                );
+                modifiedCount.incrementAndGet();
+
+                return catalogIndex;
+            };
+
+            CatalogIndex catalogIndex = restTemplate.execute(url, HttpMethod.GET, requestCallback, responseExtractor);
+            pricingMetrics.getCatalogFetchTime().record(PricingMetrics.elapsedMicros(startedAt));
+
+            return catalogIndex;
         } catch (Exception ex) {
+            // fetch runs in background, so the cause is only seen here. circuit breaker and refresh interval
+            // keep this to a few logs per failure window
+            logger.warn("Cannot get book list from {}: {}", url, ex.toString());
             throw new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST);
         }
     }
+
+    /*
+     * read book list from response stream token by token, each book is put to the index when it is read.
+     * no body string and no list of books in the middle, the other fields than books are skipped.
+     * package private for BookServiceBenchmark
+     */
+    CatalogIndex readBooks(InputStream body) throws IOException {
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        try (JsonParser parser = MAPPER.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "book list must be json object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (BOOKS_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        builder.add(BOOK_READER.readValue(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        CatalogIndex catalogIndex = builder.build();
+        if (catalogIndex.getSkippedCount() > 0) {
+            logger.warn("skip {} books with no id, wrong price or same id in book list", catalogIndex.getSkippedCount());
+        }
+
+        return catalogIndex;
+    }
+
+    public long getModifiedCount() {
+        return modifiedCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    private static class LastResponse {
+
+        private final String etag;
+
+        private final long lastModified;
+
+        private final long contentLength;
+
+        private final CatalogIndex catalogIndex;
+
+        private LastResponse(String etag, long lastModified, long contentLength, CatalogIndex catalogIndex) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentLength = contentLength;
+            this.catalogIndex = catalogIndex;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
 }
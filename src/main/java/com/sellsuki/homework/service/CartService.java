@@ -1,12 +1,19 @@
 package com.sellsuki.homework.service;
 
+import com.sellsuki.homework.config.PricingMetrics;
 import com.sellsuki.homework.dto.CartProductRequestDTO;
 import com.sellsuki.homework.dto.CartProductResponseDTO;
 import com.sellsuki.homework.exceptions.BadRequestException;
-import com.sellsuki.homework.model.Book;
-import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.Money;
+import com.sellsuki.homework.model.Quote;
 import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.request.CreateCartBatchRequest;
+import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartBatchResponse;
 import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.response.ErrorResponses;
+import com.sellsuki.homework.response.Response;
 import com.sellsuki.homework.types.ErrorType;
 import com.sellsuki.homework.utils.Constants;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,125 +22,197 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @Service
 public class CartService {
 
-    // @Value get value from application.properties file with name is ${promotion.bookid}
-    @Value(Constants.PROMOTION_BOOK_ID)
-    private String promotionBookId;
+    @Autowired
+    private CatalogService catalogService;
 
     @Autowired
-    private BookService bookService;
+    private PromotionService promotionService;
 
-    public CreateCartResponse createCart(CreateCartRequest request) throws Exception {
-        List<String> promotionProductIds = Arrays.asList(promotionBookId.split(","));
+    @Autowired
+    private QuoteService quoteService;
+
+    @Autowired
+    private PricingMetrics pricingMetrics;
 
-        Map<String, Book> bookHash = bookService.getBookListFromAPI();
+    // warm up carts are recorded here and never shown, so /api/monitor/metrics only has real carts
+    private final PricingMetrics warmUpMetrics = new PricingMetrics();
 
-        List<CartProductRequestDTO> cartProductDTOs = transformCartProduct(request.getProducts(), bookHash);
+    // @Value get value from application.properties file with name is ${cart.batch.max-size}
+    @Value(Constants.CART_BATCH_MAX_SIZE)
+    private int batchMaxSize;
 
-        List<CartProductRequestDTO> promotionProductDTOs = new ArrayList<>();
-        List<CartProductRequestDTO> nonPromotionProductDTOs = new ArrayList<>();
+    @Value(Constants.CART_BATCH_PARALLEL_THRESHOLD)
+    private int parallelThreshold;
 
-        // separate to 2 type for calculate price with promotion and non-promotion
-        cartProductDTOs.forEach(cartProductDTO -> {
-            if (promotionProductIds.contains(cartProductDTO.getProductId())) {
-                promotionProductDTOs.add(cartProductDTO);
-            } else {
-                nonPromotionProductDTOs.add(cartProductDTO);
+    @Autowired
+    private ForkJoinPool pricingPool;
+
+    public CreateCartResponse createCart(CreateCartRequest request) throws Exception {
+        return createCart(request, catalogService.getCatalogIndex());
+    }
+
+    /*
+     * same as createCart but never wait for book list api. when the catalog is ready the cart is priced
+     * on the calling thread, otherwise in the pricing pool after the catalog is loaded
+     */
+    public CompletableFuture<CreateCartResponse> createCartAsync(CreateCartRequest request) {
+        CompletableFuture<CatalogIndex> catalogIndex = catalogService.getCatalogIndexAsync();
+        CompletableFuture<CreateCartResponse> result = new CompletableFuture<>();
+        BiConsumer<CatalogIndex, Throwable> price = (index, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+                return;
             }
-        });
-
-        // get round to calculate promotion book
-        Integer maxRound = getMaxAmount(promotionProductDTOs);
-
-        Double totalDiscountPrice = 0D;
-        // calculate total price of non-promotion book type
-        Double totalPrice = nonPromotionProductDTOs
-                .stream()
-                .mapToDouble(productDTO -> productDTO.getAmount() * productDTO.getPrice())
-                .sum();
-        for (int round = 0; round < maxRound; round++) {
-            Double sum = 0D;
-            Integer uniqueProductAmount = 0;
-
-            for (CartProductRequestDTO productDTO : promotionProductDTOs) {
-                if (productDTO.getAmount() > 0) {
-                    sum += productDTO.getPrice();
-                    productDTO.setAmount(productDTO.getAmount() - 1);
-                    uniqueProductAmount++;
-                }
+
+            try {
+                result.complete(createCart(request, index));
+            } catch (Exception ex) {
+                result.completeExceptionally(ex);
             }
+        };
+
+        if (catalogIndex.isDone()) {
+            catalogIndex.whenComplete(price);
+        } else {
+            catalogIndex.whenCompleteAsync(price, pricingPool);
+        }
+
+        return result;
+    }
+
+    /*
+     * price every cart with one catalog snapshot. the error of a cart is kept in its own response,
+     * only error of the whole batch (too many carts, cannot get book list) is thrown.
+     *
+     * batch with more carts than ${cart.batch.parallel-threshold} is split in the pricing pool,
+     * the smaller batch is priced on the calling thread
+     */
+    public CreateCartBatchResponse createCarts(CreateCartBatchRequest request) throws Exception {
+        if (request.getCarts().size() > batchMaxSize) {
+            throw new BadRequestException(ErrorType.TOO_MANY_CARTS);
+        }
 
-            Integer discountPercent = getPercentDiscount(uniqueProductAmount);
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
 
-            totalPrice += sum;
-            totalDiscountPrice += (sum * discountPercent / 100);
+        List<CreateCartRequest> carts = request.getCarts();
+        @SuppressWarnings("unchecked")
+        Response<CreateCartResponse>[] results = new Response[carts.size()];
+        PriceCartsTask task = new PriceCartsTask(carts, catalogIndex, results, 0, carts.size());
+        if (carts.size() > parallelThreshold) {
+            pricingPool.invoke(task);
+        } else {
+            task.compute();
         }
 
-        return generateCreateCartResponse(request.getProducts(), bookHash, totalPrice, totalDiscountPrice);
+        CreateCartBatchResponse response = new CreateCartBatchResponse();
+        response.setCarts(Arrays.asList(results));
+
+        return response;
+    }
+
+    private Response<CreateCartResponse> priceCart(CreateCartRequest cart, CatalogIndex catalogIndex) {
+        try {
+            return new Response<>(createCart(cart, catalogIndex));
+        } catch (BadRequestException ex) {
+            return ErrorResponses.of(ex.getErrorType());
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
     }
 
-    private Integer getMaxAmount(List<CartProductRequestDTO> promotionProductDTOs) {
-        Integer max = promotionProductDTOs
-                .stream()
-                .max(Comparator.comparing(CartProductRequestDTO::getAmount))
-                .orElse(new CartProductRequestDTO())
-                .getAmount();
+    private CreateCartResponse createCart(CreateCartRequest request, CatalogIndex catalogIndex) throws Exception {
+        long startedAt = System.nanoTime();
+        pricingMetrics.getCartLines().record(request.getProducts().size());
+        List<CartProductRequestDTO> cartProductDTOs = transformCartProduct(request.getProducts(), catalogIndex);
 
-        if (max == null) {
-            max = 0;
+        // same products and amounts with the same catalog and promotion rules are priced once
+        String quoteKey = quoteService.keyOf(cartProductDTOs, catalogIndex);
+        Quote quote = quoteService.getQuote(quoteKey, catalogIndex);
+        if (quote == null) {
+            long pricingStartedAt = System.nanoTime();
+            quote = calculateQuote(cartProductDTOs, catalogIndex);
+            pricingMetrics.getPricingTime().record(PricingMetrics.elapsedMicros(pricingStartedAt));
+            quoteService.putQuote(quoteKey, catalogIndex, quote);
         }
 
-        return max;
+        long responseStartedAt = System.nanoTime();
+        CreateCartResponse response = generateCreateCartResponse(cartProductDTOs, catalogIndex,
+                quote.getTotalPrice(), quote.getDiscount());
+        pricingMetrics.getResponseBuildTime().record(PricingMetrics.elapsedMicros(responseStartedAt));
+        pricingMetrics.getCartTime().record(PricingMetrics.elapsedMicros(startedAt));
+
+        return response;
+    }
+
+    /*
+     * same steps as createCart without quote cache and metrics, so every call really prices the cart.
+     * package private for WarmUpService, warm up must run the pricing code and not fill the cache of real carts
+     */
+    CreateCartResponse createCartWithoutCache(CreateCartRequest request, CatalogIndex catalogIndex) throws Exception {
+        List<CartProductRequestDTO> cartProductDTOs = transformCartProduct(request.getProducts(), catalogIndex);
+        Quote quote = calculateQuote(cartProductDTOs, catalogIndex, warmUpMetrics);
+
+        return generateCreateCartResponse(cartProductDTOs, catalogIndex, quote.getTotalPrice(), quote.getDiscount());
+    }
+
+    // package private for CartServiceBenchmark, price without quote cache
+    Quote calculateQuote(List<CartProductRequestDTO> cartProductDTOs, CatalogIndex catalogIndex) {
+        return calculateQuote(cartProductDTOs, catalogIndex, pricingMetrics);
     }
 
-    private Integer getPercentDiscount(Integer uniqueProductAmount) {
-        Integer percentDiscount = 0;
-        switch (uniqueProductAmount) {
-            case 2:
-                percentDiscount = 10;
-                break;
-            case 3:
-                percentDiscount = 11;
-                break;
-            case 4:
-                percentDiscount = 12;
-                break;
-            case 5:
-                percentDiscount = 13;
-                break;
-            case 6:
-                percentDiscount = 14;
-                break;
-            case 7:
-                percentDiscount = 15;
-                break;
+    private Quote calculateQuote(List<CartProductRequestDTO> cartProductDTOs, CatalogIndex catalogIndex,
+                                 PricingMetrics metrics) {
+        // calculate total price of all book type in minor unit, promotion book is discounted after.
+        // only promotion book type is calculated for discount
+        long totalPriceMinor = 0;
+        List<CartProductRequestDTO> promotionProductDTOs = new ArrayList<>(cartProductDTOs.size());
+        for (CartProductRequestDTO productDTO : cartProductDTOs) {
+            totalPriceMinor = Math.addExact(totalPriceMinor,
+                    Math.multiplyExact(productDTO.getPriceMinor(), (long) productDTO.getAmount()));
+            if (productDTO.isPromotion()) {
+                promotionProductDTOs.add(productDTO);
+            }
         }
+        // promotion groups of the index are from this config, so use the same rules even they are reloaded now
+        Money totalDiscountPrice = promotionService.calculateDiscount(promotionProductDTOs,
+                catalogIndex.getPromotionConfig(), metrics);
 
-        return percentDiscount;
+        return new Quote(Money.ofMinor(totalPriceMinor), totalDiscountPrice);
     }
 
-    private List<CartProductRequestDTO> transformCartProduct(List<CartProductRequest> cartProductRequests,
-                                                             Map<String, Book> bookHash) throws Exception {
+    // find slot of every book in catalog once, the next steps use the slot and not find it again
+    List<CartProductRequestDTO> transformCartProduct(List<CartProductRequest> cartProductRequests,
+                                                     CatalogIndex catalogIndex) throws Exception {
 
         List<CartProductRequestDTO> cartProductRequestDTOs = new ArrayList<>();
         for (CartProductRequest cartProductRequest : cartProductRequests) {
-            if (!bookHash.containsKey(cartProductRequest.getProductId())) {
+            int slot = catalogIndex.slotOf(cartProductRequest.getProductId());
+            if (slot < 0) {
                 throw new BadRequestException(ErrorType.PRODUCT_NOT_FOUND);
             }
 
             CartProductRequestDTO cartProductDTO = new CartProductRequestDTO();
             cartProductDTO.setProductId(cartProductRequest.getProductId());
-            cartProductDTO.setAmount(Integer.valueOf(cartProductRequest.getAmount()));
-            cartProductDTO.setPrice(
-                    Double.valueOf(bookHash.get(cartProductDTO.getProductId()).getPrice())
-            );
+            cartProductDTO.setSlot(slot);
+            cartProductDTO.setAmount(cartProductRequest.getAmount());
+            cartProductDTO.setPriceMinor(catalogIndex.getPriceMinor(slot));
+            cartProductDTO.setPromotion(catalogIndex.isPromotion(slot));
+            cartProductDTO.setPromotionGroup(catalogIndex.getPromotionGroup(slot));
 
             cartProductRequestDTOs.add(cartProductDTO);
         }
@@ -141,25 +220,23 @@ public class CartService {
         return cartProductRequestDTOs;
     }
 
-    private CreateCartResponse generateCreateCartResponse(List<CartProductRequest> cartProductRequests,
-                                                          Map<String, Book> bookHash,
-                                                          Double totalPrice,
-                                                          Double totalDiscountPrice) {
+    private CreateCartResponse generateCreateCartResponse(List<CartProductRequestDTO> cartProductDTOs,
+                                                          CatalogIndex catalogIndex,
+                                                          Money totalPrice,
+                                                          Money totalDiscountPrice) {
         CreateCartResponse response = new CreateCartResponse();
         response.setDiscount(totalDiscountPrice.toString());
-        Double net = totalPrice - totalDiscountPrice;
-        response.setNet(net.toString());
+        response.setNet(totalPrice.minus(totalDiscountPrice).toString());
         response.setProducts(
-                cartProductRequests
+                cartProductDTOs
                         .stream()
                         .map(product -> {
                             CartProductResponseDTO cartProductDTO = new CartProductResponseDTO();
                             cartProductDTO.setProductId(product.getProductId());
-                            cartProductDTO.setTitle(bookHash.get(cartProductDTO.getProductId()).getTitle());
+                            cartProductDTO.setTitle(catalogIndex.getTitle(product.getSlot()));
                             cartProductDTO.setAmount(product.getAmount());
-                            cartProductDTO.setPrice(bookHash.get(cartProductDTO.getProductId()).getPrice());
-                            Double sum = Integer.valueOf(cartProductDTO.getAmount()) * Double.valueOf(cartProductDTO.getPrice());
-                            cartProductDTO.setTotalPrice(sum.toString());
+                            cartProductDTO.setPrice(catalogIndex.getPrice(product.getSlot()));
+                            cartProductDTO.setTotalPrice(Money.ofMinor(Math.multiplyExact(product.getPriceMinor(), (long) product.getAmount())).toString());
 
                             return cartProductDTO;
                         }).collect(Collectors.toList())
@@ -167,4 +244,46 @@ public class CartService {
 
         return response;
     }
+
+    /*
+     * price carts from index "from" to "to" (exclusive) and put result at the same index,
+     * so the order of results is the same as the request. range bigger than threshold is split into 2 halves
+     */
+    private class PriceCartsTask extends RecursiveAction {
+
+        private final List<CreateCartRequest> carts;
+
+        private final CatalogIndex catalogIndex;
+
+        private final Response<CreateCartResponse>[] results;
+
+        private final int from;
+
+        private final int to;
+
+        private PriceCartsTask(List<CreateCartRequest> carts, CatalogIndex catalogIndex,
+                               Response<CreateCartResponse>[] results, int from, int to) {
+            this.carts = carts;
+            this.catalogIndex = catalogIndex;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= Math.max(parallelThreshold, 1)) {
+                for (int i = from; i < to; i++) {
+                    results[i] = priceCart(carts.get(i), catalogIndex);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new PriceCartsTask(carts, catalogIndex, results, from, middle),
+                    new PriceCartsTask(carts, catalogIndex, results, middle, to)
+            );
+        }
+    }
 }
@@ -0,0 +1,262 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.dto.CartProductResponseDTO;
+import com.sellsuki.homework.exceptions.BadRequestException;
+import com.sellsuki.homework.exceptions.NotFoundException;
+import com.sellsuki.homework.model.CartSession;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.Money;
+import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.response.CartSessionResponse;
+import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.types.FsyncPolicy;
+import com.sellsuki.homework.utils.AmountDeserializer;
+import com.sellsuki.homework.utils.CartJournal;
+import com.sellsuki.homework.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * carts that are kept in memory between requests, client send only the line that is changed.
+ * cart that is not used longer than ${cart.session.ttl} is removed.
+ *
+ * every change is also put in the cart journal (see CartJournal) while the cart is locked, the journal
+ * writes it to disk later so the request never waits for the disk. carts are read back from the journal
+ * when the application is started
+ */
+@Service
+public class CartSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartSessionService.class);
+
+    @Autowired
+    private CatalogService catalogService;
+
+    // @Value get value from application.properties file with name is ${cart.session.ttl}
+    @Value(Constants.CART_SESSION_TTL)
+    private long ttl;
+
+    // directory of cart journal, empty is carts are only in memory
+    @Value(Constants.CART_JOURNAL_DIR)
+    private String journalDir;
+
+    @Value(Constants.CART_JOURNAL_FSYNC)
+    private FsyncPolicy journalFsync;
+
+    @Value(Constants.CART_JOURNAL_FSYNC_INTERVAL)
+    private long journalFsyncInterval;
+
+    @Value(Constants.CART_JOURNAL_QUEUE_SIZE)
+    private int journalQueueSize;
+
+    @Value(Constants.CART_JOURNAL_BATCH_SIZE)
+    private int journalBatchSize;
+
+    private CartJournal journal;
+
+    private final Map<String, CartSession> sessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (journalDir == null || journalDir.trim().isEmpty()) {
+            return;
+        }
+
+        CartJournal cartJournal = new CartJournal(new File(journalDir.trim()), journalFsync, journalFsyncInterval,
+                journalQueueSize, journalBatchSize);
+        sessions.putAll(cartJournal.replay());
+        cartJournal.start(sessions::values);
+        journal = cartJournal;
+
+        logger.info("{} carts are restored from {}", sessions.size(), journalDir);
+    }
+
+    // write the changes that are left in the queue before the application stops
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /*
+     * compact the journal with fixed delay from ${cart.journal.snapshot-interval},
+     * the snapshot is written by the journal thread
+     */
+    @Scheduled(fixedDelayString = Constants.CART_JOURNAL_SNAPSHOT_INTERVAL)
+    public void snapshotCarts() {
+        if (journal != null) {
+            journal.requestSnapshot();
+        }
+    }
+
+    public CartSessionResponse createCart() throws Exception {
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+
+        CartSession session = new CartSession(UUID.randomUUID().toString(), System.currentTimeMillis());
+        sessions.put(session.getId(), session);
+
+        synchronized (session) {
+            if (journal != null) {
+                journal.recordCreate(session.getId(), session.getLastAccessedAt());
+            }
+            reindex(session, catalogIndex);
+            return generateCartSessionResponse(session, catalogIndex);
+        }
+    }
+
+    public CartSessionResponse getCart(String cartId) throws Exception {
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+        CartSession session = findSession(cartId);
+
+        synchronized (session) {
+            reindex(session, catalogIndex);
+            return generateCartSessionResponse(session, catalogIndex);
+        }
+    }
+
+    // add amount of the book to the cart, same book is added to the same line
+    public CartSessionResponse addLine(String cartId, CartProductRequest request) throws Exception {
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+        CartSession session = findSession(cartId);
+
+        int slot = catalogIndex.slotOf(request.getProductId());
+        if (slot < 0) {
+            throw new BadRequestException(ErrorType.PRODUCT_NOT_FOUND);
+        }
+
+        synchronized (session) {
+            reindex(session, catalogIndex);
+            if ((long) session.getAmount(request.getProductId()) + request.getAmount() > AmountDeserializer.MAX_AMOUNT) {
+                throw new BadRequestException(ErrorType.AMOUNT_TOO_LARGE);
+            }
+            int amount = session.addLine(request.getProductId(), slot, request.getAmount(), catalogIndex);
+            if (journal != null) {
+                journal.recordSetLine(cartId, session.getLastAccessedAt(), request.getProductId(), amount);
+            }
+            return generateCartSessionResponse(session, catalogIndex);
+        }
+    }
+
+    public CartSessionResponse removeLine(String cartId, String productId) throws Exception {
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+        CartSession session = findSession(cartId);
+
+        synchronized (session) {
+            reindex(session, catalogIndex);
+            if (!session.removeLine(productId)) {
+                throw new BadRequestException(ErrorType.PRODUCT_NOT_FOUND);
+            }
+            if (journal != null) {
+                journal.recordRemoveLine(cartId, session.getLastAccessedAt(), productId);
+            }
+            return generateCartSessionResponse(session, catalogIndex);
+        }
+    }
+
+    /*
+     * remove expired carts with fixed delay from ${cart.session.sweep-interval},
+     * expired cart is also not found when it is used before the sweep
+     */
+    @Scheduled(fixedDelayString = Constants.CART_SESSION_SWEEP_INTERVAL)
+    public void removeExpiredCarts() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> {
+            synchronized (session) {
+                return isRemoved(session, now);
+            }
+        });
+    }
+
+    public int getSize() {
+        return sessions.size();
+    }
+
+    private CartSession findSession(String cartId) throws NotFoundException {
+        CartSession session = sessions.get(cartId);
+        if (session == null) {
+            throw new NotFoundException(ErrorType.CART_NOT_FOUND);
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (session) {
+            if (isRemoved(session, now)) {
+                sessions.remove(cartId, session);
+                throw new NotFoundException(ErrorType.CART_NOT_FOUND);
+            }
+            session.touch(now);
+        }
+
+        return session;
+    }
+
+    // expired cart is removed from the journal too, call while the cart is locked
+    private boolean isRemoved(CartSession session, long now) {
+        if (!session.isExpired(ttl, now)) {
+            return false;
+        }
+
+        if (journal != null) {
+            journal.recordDelete(session.getId());
+        }
+        return true;
+    }
+
+    // reindex the cart and write the lines that are removed with it to the journal, call while the cart is locked
+    private void reindex(CartSession session, CatalogIndex catalogIndex) {
+        List<String> removedProductIds = session.reindex(catalogIndex);
+        if (journal != null) {
+            for (String productId : removedProductIds) {
+                journal.recordRemoveLine(session.getId(), session.getLastAccessedAt(), productId);
+            }
+        }
+    }
+
+    /*
+     * total is the running subtotal of the cart and discount is the running discount of its promotion groups,
+     * only the groups that are changed by the request are priced again
+     */
+    private CartSessionResponse generateCartSessionResponse(CartSession session, CatalogIndex catalogIndex) {
+        long discount = session.getPromotionDiscount(catalogIndex.getPromotionConfig().getGroups());
+
+        Money totalDiscountPrice = Money.ofMinor(Money.roundPercent(discount));
+        Money totalPrice = Money.ofMinor(session.getSubtotal());
+
+        List<CartProductResponseDTO> products = new ArrayList<>();
+        for (CartSession.CartLine line : session.getLines()) {
+            CartProductResponseDTO cartProductDTO = new CartProductResponseDTO();
+            cartProductDTO.setProductId(line.getProductId());
+            cartProductDTO.setTitle(catalogIndex.getTitle(line.getSlot()));
+            cartProductDTO.setAmount(line.getAmount());
+            cartProductDTO.setPrice(catalogIndex.getPrice(line.getSlot()));
+            cartProductDTO.setTotalPrice(Money.ofMinor(line.getPriceMinor()).times(line.getAmount()).toString());
+            products.add(cartProductDTO);
+        }
+
+        CreateCartResponse cart = new CreateCartResponse();
+        cart.setProducts(products);
+        cart.setDiscount(totalDiscountPrice.toString());
+        cart.setNet(totalPrice.minus(totalDiscountPrice).toString());
+
+        CartSessionResponse response = new CartSessionResponse();
+        response.setCartId(session.getId());
+        response.setCart(cart);
+
+        return response;
+    }
+}
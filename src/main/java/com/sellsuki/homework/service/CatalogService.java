@@ -0,0 +1,356 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.exceptions.InternalServerErrorException;
+import com.sellsuki.homework.model.Catalog;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.PromotionConfig;
+import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.utils.CatalogSnapshotFile;
+import com.sellsuki.homework.utils.CircuitBreaker;
+import com.sellsuki.homework.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class CatalogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private PromotionService promotionService;
+
+    // @Value get value from application.properties file with name is ${catalog.cache.ttl}
+    @Value(Constants.CATALOG_CACHE_TTL)
+    private long ttl;
+
+    // snapshot older than ttl but not older than max stale is still served while loading the new one
+    @Value(Constants.CATALOG_CACHE_MAX_STALE)
+    private long maxStale;
+
+    // caller that joins a running fetch does not wait longer than the http client timeouts of that fetch
+    @Value(Constants.CATALOG_CACHE_JOIN_TIMEOUT)
+    private long joinTimeout;
+
+    @Value(Constants.CATALOG_BREAKER_FAILURE_THRESHOLD)
+    private int breakerFailureThreshold;
+
+    @Value(Constants.CATALOG_BREAKER_OPEN_DURATION)
+    private long breakerOpenDuration;
+
+    // book list file that is loaded on start before book list api is called, empty is not saved
+    @Value(Constants.CATALOG_SNAPSHOT_FILE)
+    private String snapshotFile;
+
+    private CircuitBreaker circuitBreaker;
+
+    private CatalogSnapshotFile catalogSnapshotFile;
+
+    // version of the book list that is in the snapshot file, only used by revalidate thread
+    private long savedVersion;
+
+    private ExecutorService revalidateExecutor;
+
+    // fetch for async callers, the request thread is not blocked while book list api is called
+    private ExecutorService fetchExecutor;
+
+    // request threads only read this reference, background refresh swap it with new snapshot
+    private final AtomicReference<Catalog> catalog = new AtomicReference<>();
+
+    // the fetch that is running now, every caller during this time wait for the same result
+    private final AtomicReference<CompletableFuture<Catalog>> inFlight = new AtomicReference<>();
+
+    // only one revalidate task is queued at a time
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    private final AtomicLong fetchCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        circuitBreaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenDuration);
+        revalidateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-revalidate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        fetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-fetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (snapshotFile != null && !snapshotFile.trim().isEmpty()) {
+            catalogSnapshotFile = new CatalogSnapshotFile(new File(snapshotFile.trim()));
+            loadSnapshotFile();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        revalidateExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    public CatalogIndex getCatalogIndex() throws Exception {
+        Catalog current = catalog.get();
+        long now = System.currentTimeMillis();
+        if (current == null || current.isExpired(ttl, now)) {
+            if (current != null && !current.isExpired(maxStale, now)) {
+                // stale while revalidate, serve the old snapshot and load the new one in background
+                revalidate();
+            } else {
+                current = refresh();
+            }
+        }
+
+        return withCurrentPromotion(current).getIndex();
+    }
+
+    /*
+     * same as getCatalogIndex but never block the caller, the future is done right away when the snapshot
+     * is fresh or stale, otherwise when the fetch is finished (see refreshAsync)
+     */
+    public CompletableFuture<CatalogIndex> getCatalogIndexAsync() {
+        Catalog current = catalog.get();
+        long now = System.currentTimeMillis();
+        if (current == null || current.isExpired(ttl, now)) {
+            if (current != null && !current.isExpired(maxStale, now)) {
+                revalidate();
+            } else {
+                return refreshAsync().thenApply(fresh -> withCurrentPromotion(fresh).getIndex());
+            }
+        }
+
+        return CompletableFuture.completedFuture(withCurrentPromotion(current).getIndex());
+    }
+
+    /*
+     * refresh book list in background with fixed delay from ${catalog.cache.refresh-interval}
+     * so request threads always found the fresh snapshot and not wait for book list api
+     */
+    @Scheduled(fixedDelayString = Constants.CATALOG_CACHE_REFRESH_INTERVAL)
+    public void refreshInBackground() {
+        try {
+            refresh();
+        } catch (Exception ex) {
+            logger.warn("Cannot refresh catalog, keep current snapshot: {}", ex.getMessage());
+        }
+    }
+
+    /*
+     * load new snapshot from book list api. only one caller call the api at a time,
+     * the other callers come during that join the same future instead of call the api again.
+     *
+     * when the circuit is open the api is not called and fail fast
+     */
+    public Catalog refresh() throws Exception {
+        while (true) {
+            CompletableFuture<Catalog> running = inFlight.get();
+            if (running != null) {
+                coalescedCount.incrementAndGet();
+                return join(running);
+            }
+
+            if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+                throw new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST);
+            }
+
+            CompletableFuture<Catalog> future = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, future)) {
+                return fetch(future);
+            }
+        }
+    }
+
+    /*
+     * same as refresh but the api is called in fetch thread, the caller get the future of the running fetch
+     * or a new one. book list api client is blocking, so this only move the wait out of the request thread.
+     * fetches are coalesced, so the blocking call holds one fetch thread for all waiting requests
+     */
+    public CompletableFuture<Catalog> refreshAsync() {
+        while (true) {
+            CompletableFuture<Catalog> running = inFlight.get();
+            if (running != null) {
+                coalescedCount.incrementAndGet();
+                return running;
+            }
+
+            if (!circuitBreaker.allowRequest(System.currentTimeMillis())) {
+                CompletableFuture<Catalog> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+                return failed;
+            }
+
+            CompletableFuture<Catalog> future = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, future)) {
+                try {
+                    fetchExecutor.execute(() -> {
+                        try {
+                            fetch(future);
+                        } catch (Exception ex) {
+                            // the error is already in the future
+                        }
+                    });
+                } catch (RejectedExecutionException ex) {
+                    inFlight.compareAndSet(future, null);
+                    future.completeExceptionally(ex);
+                }
+                return future;
+            }
+        }
+    }
+
+    public Catalog getCatalog() {
+        return catalog.get();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    // call book list api and complete the future that is set in inFlight by the caller
+    private Catalog fetch(CompletableFuture<Catalog> future) throws Exception {
+        try {
+            fetchCount.incrementAndGet();
+            PromotionConfig promotionConfig = promotionService.getPromotionConfig();
+            CatalogIndex index = bookService.getBookListFromAPI().withPromotion(promotionConfig);
+            Catalog fresh = new Catalog(index, System.currentTimeMillis(), promotionConfig.getVersion());
+            catalog.set(fresh);
+            saveSnapshotFile(index);
+            circuitBreaker.onSuccess();
+            future.complete(fresh);
+
+            return fresh;
+        } catch (Exception ex) {
+            circuitBreaker.onFailure(System.currentTimeMillis());
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.compareAndSet(future, null);
+        }
+    }
+
+    /*
+     * promotion rules are changed after the catalog is loaded,
+     * set promotion group of every book again without load book list from api
+     */
+    private Catalog withCurrentPromotion(Catalog current) {
+        PromotionConfig promotionConfig = promotionService.getPromotionConfig();
+        if (current.getPromotionVersion() == promotionConfig.getVersion()) {
+            return current;
+        }
+
+        Catalog promoted = new Catalog(
+                current.getIndex().withPromotion(promotionConfig),
+                current.getLoadedAt(),
+                promotionConfig.getVersion()
+        );
+        // another thread may load the new catalog already, keep that one
+        catalog.compareAndSet(current, promoted);
+
+        return promoted;
+    }
+
+    /*
+     * the book list from last run is loaded with the time it was saved, so ttl and max stale decide like for
+     * the book list from api: fresh file is used as it is, stale file is served while the new one is loaded
+     * (stale while revalidate) and file older than max stale is not served, the first request waits for the api
+     */
+    private void loadSnapshotFile() {
+        if (!catalogSnapshotFile.exists()) {
+            return;
+        }
+
+        try {
+            CatalogSnapshotFile.Snapshot snapshot = catalogSnapshotFile.read();
+            PromotionConfig promotionConfig = promotionService.getPromotionConfig();
+            catalog.compareAndSet(null, new Catalog(
+                    snapshot.getCatalogIndex().withPromotion(promotionConfig),
+                    snapshot.getSavedAt(),
+                    promotionConfig.getVersion()
+            ));
+            logger.info("Catalog of {} books saved at {} is loaded from {}",
+                    snapshot.getCatalogIndex().size(), snapshot.getSavedAt(), catalogSnapshotFile.getFile());
+        } catch (Exception ex) {
+            logger.warn("Cannot load catalog snapshot {}, wait for book list api: {}", catalogSnapshotFile.getFile(), ex.getMessage());
+        }
+    }
+
+    // write the file in revalidate thread so the request that load the catalog does not wait for the disk
+    private void saveSnapshotFile(CatalogIndex index) {
+        if (catalogSnapshotFile == null) {
+            return;
+        }
+
+        long savedAt = System.currentTimeMillis();
+        revalidateExecutor.execute(() -> {
+            // not modified book list is the same index, no need to write it again
+            if (index.getVersion() == savedVersion) {
+                return;
+            }
+
+            try {
+                catalogSnapshotFile.write(index, savedAt);
+                savedVersion = index.getVersion();
+            } catch (Exception ex) {
+                logger.warn("Cannot save catalog snapshot {}: {}", catalogSnapshotFile.getFile(), ex.getMessage());
+            }
+        });
+    }
+
+    private void revalidate() {
+        if (inFlight.get() == null && revalidating.compareAndSet(false, true)) {
+            revalidateExecutor.execute(() -> {
+                try {
+                    refreshInBackground();
+                } finally {
+                    revalidating.set(false);
+                }
+            });
+        }
+    }
+
+    // one hanging book list api call must not hang every request thread that joins it
+    private Catalog join(CompletableFuture<Catalog> future) throws Exception {
+        try {
+            return future.get(joinTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof Exception) {
+                throw (Exception) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
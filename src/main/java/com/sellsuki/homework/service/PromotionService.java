@@ -0,0 +1,232 @@
+package com.sellsuki.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.dto.CartProductRequestDTO;
+import com.sellsuki.homework.dto.PromotionGroupDTO;
+import com.sellsuki.homework.dto.PromotionRulesDTO;
+import com.sellsuki.homework.model.Money;
+import com.sellsuki.homework.model.PromotionConfig;
+import com.sellsuki.homework.model.PromotionGroup;
+import com.sellsuki.homework.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Service
+public class PromotionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionService.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DEFAULT_GROUP = "default";
+
+    @Autowired
+    private PricingMetrics pricingMetrics;
+
+    // @Value get value from application.properties file with name is ${promotion.bookid}
+    @Value(Constants.PROMOTION_BOOK_ID)
+    private String promotionBookId;
+
+    @Value(Constants.PROMOTION_TIERS)
+    private String promotionTiers;
+
+    // json file of promotion groups, empty is use promotion.bookid and promotion.tiers
+    @Value(Constants.PROMOTION_RULES_FILE)
+    private String rulesFile;
+
+    @Value(Constants.PROMOTION_BUNDLE_MEMO_SIZE)
+    private int bundleMemoSize;
+
+    @Value(Constants.PROMOTION_BUNDLE_MAX_STATES)
+    private int bundleMaxStates;
+
+    // last modified time of rules file that is loaded, only used by init and reload thread
+    private long rulesFileModified = -1;
+
+    private final AtomicLong configVersion = new AtomicLong();
+
+    // request threads only read this reference, the rules are parsed once when they are changed
+    private volatile PromotionConfig promotionConfig = new PromotionConfig(Collections.emptyList(), 0);
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (rulesFile == null || rulesFile.trim().isEmpty()) {
+            updatePromotionBookId(promotionBookId);
+        } else {
+            loadRulesFile();
+        }
+    }
+
+    /*
+     * check rules file with fixed delay from ${promotion.rules.reload-interval} and swap the rules when
+     * the file is changed. wrong file is not loaded and the current rules are kept
+     */
+    @Scheduled(fixedDelayString = Constants.PROMOTION_RULES_RELOAD_INTERVAL)
+    public void reloadRules() {
+        if (rulesFile == null || rulesFile.trim().isEmpty()) {
+            return;
+        }
+
+        try {
+            loadRulesFile();
+        } catch (Exception ex) {
+            logger.warn("Cannot reload promotion rules, keep current rules: {}", ex.getMessage());
+        }
+    }
+
+    /*
+     * parse comma separated promotion book ids to one promotion group with ${promotion.tiers} and swap the rules.
+     * catalog see the new version and set promotion group of every book again
+     */
+    public void updatePromotionBookId(String promotionBookId) {
+        PromotionGroupDTO group = new PromotionGroupDTO();
+        group.setName(DEFAULT_GROUP);
+        group.setProductIds(Arrays.asList(promotionBookId.split(",")));
+        group.setPercents(Arrays.stream(promotionTiers.split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .collect(Collectors.toList()));
+
+        PromotionRulesDTO rules = new PromotionRulesDTO();
+        rules.setGroups(Collections.singletonList(group));
+        updatePromotionRules(rules);
+    }
+
+    /*
+     * build tiers of every group to int array once and swap all groups together with a new version.
+     * rules that are the same as the current rules are not swapped
+     */
+    public void updatePromotionRules(PromotionRulesDTO rules) {
+        if (rules.getGroups() == null) {
+            throw new IllegalArgumentException("Promotion rules have no groups");
+        }
+
+        List<PromotionGroup> groups = new ArrayList<>();
+        for (PromotionGroupDTO group : rules.getGroups()) {
+            String name = group.getName() == null ? DEFAULT_GROUP + "-" + groups.size() : group.getName();
+            if (group.getProductIds() == null || group.getPercents() == null) {
+                throw new IllegalArgumentException("Promotion group " + name + " has no product ids or percents");
+            }
+
+            Set<String> productIds = group.getProductIds()
+                    .stream()
+                    .map(String::trim)
+                    .filter(productId -> !productId.isEmpty())
+                    .collect(Collectors.toCollection(HashSet::new));
+
+            int[] percents = new int[group.getPercents().size()];
+            for (int uniqueTitles = 0; uniqueTitles < percents.length; uniqueTitles++) {
+                Integer percent = group.getPercents().get(uniqueTitles);
+                if (percent == null || percent < 0 || percent > 100) {
+                    throw new IllegalArgumentException("Promotion group " + name + " has wrong percent " + percent);
+                }
+                percents[uniqueTitles] = percent;
+            }
+
+            groups.add(new PromotionGroup(name, productIds, percents, bundleMemoSize, bundleMaxStates));
+        }
+
+        // same rules keep the version, so catalog and quote cache are not built again for nothing
+        PromotionConfig current = promotionConfig;
+        if (current != null && current.sameRules(groups)) {
+            return;
+        }
+
+        promotionConfig = new PromotionConfig(groups, configVersion.incrementAndGet());
+    }
+
+    public PromotionConfig getPromotionConfig() {
+        return promotionConfig;
+    }
+
+    public boolean isPromotion(String productId) {
+        return promotionConfig.groupOf(productId) != PromotionConfig.NO_GROUP;
+    }
+
+    /*
+     * best discount of promotion books with the rules the books are grouped by, each group is bundled
+     * separately (see BundleOptimizer). discount is rounded half up to minor unit once for the whole cart.
+     *
+     * every line is one title, also when 2 lines have the same product id (the same as the round by round
+     * calculation before)
+     */
+    public Money calculateDiscount(List<CartProductRequestDTO> promotionProductDTOs, PromotionConfig promotionConfig) {
+        return calculateDiscount(promotionProductDTOs, promotionConfig, pricingMetrics);
+    }
+
+    // same as calculateDiscount, the number of bundles is recorded to metrics
+    public Money calculateDiscount(List<CartProductRequestDTO> promotionProductDTOs, PromotionConfig promotionConfig,
+                                   PricingMetrics metrics) {
+        List<PromotionGroup> groups = promotionConfig.getGroups();
+
+        long totalDiscountPrice = 0;
+        long rounds = 0;
+        for (int groupIndex = 0; groupIndex < groups.size(); groupIndex++) {
+            int count = 0;
+            for (CartProductRequestDTO title : promotionProductDTOs) {
+                if (title.getPromotionGroup() == groupIndex) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+
+            long[] prices = new long[count];
+            int[] amounts = new int[count];
+            int maxAmount = 0;
+            int i = 0;
+            for (CartProductRequestDTO title : promotionProductDTOs) {
+                if (title.getPromotionGroup() == groupIndex) {
+                    prices[i] = title.getPriceMinor();
+                    amounts[i] = title.getAmount();
+                    maxAmount = Math.max(maxAmount, amounts[i]);
+                    i++;
+                }
+            }
+            // every bundle has at most one book of a title, so the group has at least this number of bundles
+            rounds += maxAmount;
+
+            long discount = groups.get(groupIndex).getBundleOptimizer().bestDiscount(prices, amounts);
+            totalDiscountPrice = Math.addExact(totalDiscountPrice, discount);
+        }
+
+        metrics.getPromotionRounds().record(rounds);
+
+        return Money.ofMinor(Money.roundPercent(totalDiscountPrice));
+    }
+
+    private void loadRulesFile() throws IOException {
+        File file = new File(rulesFile.trim());
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Promotion rules file " + file + " is not found");
+        }
+
+        long modified = file.lastModified();
+        if (modified == rulesFileModified) {
+            return;
+        }
+
+        updatePromotionRules(MAPPER.readValue(file, PromotionRulesDTO.class));
+        rulesFileModified = modified;
+        logger.info("Promotion rules version {} is loaded from {}", promotionConfig.getVersion(), file);
+    }
+}
@@ -0,0 +1,132 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.dto.CartProductRequestDTO;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.Quote;
+import com.sellsuki.homework.utils.Constants;
+import com.sellsuki.homework.utils.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * cache of cart quotes. many carts are the same (e.g. the full set of 7 books), so total price and discount
+ * are only calculated once for the same products and amounts.
+ *
+ * the key is the lines in product id order (order of lines is not matter, but a product in 2 lines is not
+ * the same as 1 line, every line is a title for the discount) with version of catalog and promotion rules.
+ * when either version is changed all quotes are removed, they are never used again. versions are only changed
+ * when books or rules are really changed, refresh that gets the same books keeps the quotes
+ */
+@Service
+public class QuoteService {
+
+    private static final Comparator<CartProductRequestDTO> LINE_ORDER = Comparator
+            .comparing(CartProductRequestDTO::getProductId)
+            .thenComparingInt(CartProductRequestDTO::getAmount);
+
+    // @Value get value from application.properties file with name is ${cart.quote-cache.max-size}
+    @Value(Constants.CART_QUOTE_CACHE_MAX_SIZE)
+    private int maxSize;
+
+    @Value(Constants.CART_QUOTE_CACHE_SEGMENTS)
+    private int segments;
+
+    private LruCache<String, Quote> cache;
+
+    // catalog and promotion rules version of the quotes in cache
+    private volatile long catalogVersion;
+
+    private volatile long promotionVersion;
+
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = new LruCache<>(maxSize, segments);
+    }
+
+    // return null when the cart is not priced yet with this catalog and promotion rules
+    public Quote getQuote(String key, CatalogIndex catalogIndex) {
+        if (!isCurrent(catalogIndex)) {
+            invalidate(catalogIndex);
+        }
+
+        return cache.get(key);
+    }
+
+    public void putQuote(String key, CatalogIndex catalogIndex, Quote quote) {
+        // request with the old catalog may finish after the versions are changed, do not keep its quote
+        if (isCurrent(catalogIndex)) {
+            cache.put(key, quote);
+        }
+    }
+
+    /*
+     * canonical key of the cart: versions then length:productId=amount of every line in product id then amount
+     * order, the length of product id is kept so any character in product id cannot make 2 carts the same key
+     */
+    public String keyOf(List<CartProductRequestDTO> cartProductDTOs, CatalogIndex catalogIndex) {
+        List<CartProductRequestDTO> lines = new ArrayList<>(cartProductDTOs);
+        lines.sort(LINE_ORDER);
+
+        StringBuilder key = new StringBuilder()
+                .append(catalogIndex.getVersion())
+                .append('/')
+                .append(catalogIndex.getPromotionConfig().getVersion());
+        for (CartProductRequestDTO line : lines) {
+            key.append('|')
+                    .append(line.getProductId().length())
+                    .append(':')
+                    .append(line.getProductId())
+                    .append('=')
+                    .append(line.getAmount());
+        }
+
+        return key.toString();
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    private boolean isCurrent(CatalogIndex catalogIndex) {
+        return catalogIndex.getVersion() == catalogVersion
+                && catalogIndex.getPromotionConfig().getVersion() == promotionVersion;
+    }
+
+    // only move to newer versions, request with the old catalog does not clear quotes of the new one
+    private synchronized void invalidate(CatalogIndex catalogIndex) {
+        long newCatalogVersion = catalogIndex.getVersion();
+        long newPromotionVersion = catalogIndex.getPromotionConfig().getVersion();
+        if (newCatalogVersion < catalogVersion || newPromotionVersion < promotionVersion || isCurrent(catalogIndex)) {
+            return;
+        }
+
+        catalogVersion = newCatalogVersion;
+        promotionVersion = newPromotionVersion;
+        cache.clear();
+        invalidationCount.incrementAndGet();
+    }
+}
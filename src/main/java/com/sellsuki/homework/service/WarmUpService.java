@@ -0,0 +1,162 @@
+package com.sellsuki.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.Response;
+import com.sellsuki.homework.utils.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * warm up after the application is started and before it is ready for traffic:
+ * load the catalog, then price ${warmup.iterations} synthetic carts with CartService and write the responses
+ * with the same json writer of the controllers, so the first real carts do not pay for the cold catalog,
+ * jit and json serializer. load balancer check readiness at {domain}/api/monitor/ready
+ *
+ * carts are priced without quote cache, so every iteration runs the pricing code and the cache only has
+ * real carts
+ */
+@Service
+public class WarmUpService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpService.class);
+
+    // number of books in a synthetic cart when carts are made from the catalog
+    private static final int MAX_GENERATED_TITLES = 8;
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // @Value get value from application.properties file with name is ${warmup.enabled}
+    @Value(Constants.WARMUP_ENABLED)
+    private boolean enabled;
+
+    // productId:amount,productId:amount|... empty is carts of the first books in the catalog
+    @Value(Constants.WARMUP_CARTS)
+    private String carts;
+
+    @Value(Constants.WARMUP_ITERATIONS)
+    private int iterations;
+
+    private volatile boolean ready;
+
+    private volatile int warmUpCarts;
+
+    private volatile long warmUpTime;
+
+    /*
+     * book list api or a cart that is failed is only logged, the instance is still ready.
+     * otherwise every instance is never ready when book list api is down
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        int warmed = 0;
+        try {
+            CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+            List<CreateCartRequest> requests = carts == null || carts.trim().isEmpty()
+                    ? generateCarts(catalogIndex)
+                    : parseCarts(carts);
+
+            for (int i = 0; i < iterations && !requests.isEmpty(); i++) {
+                try {
+                    CreateCartRequest request = requests.get(i % requests.size());
+                    objectMapper.writeValueAsBytes(new Response<>(cartService.createCartWithoutCache(request, catalogIndex)));
+                    warmed++;
+                } catch (Exception ex) {
+                    logger.debug("Warm up cart is failed: {}", ex.getMessage());
+                }
+            }
+        } catch (Exception ex) {
+            logger.warn("Cannot load catalog for warm up: {}", ex.getMessage());
+        } finally {
+            warmUpCarts = warmed;
+            warmUpTime = System.currentTimeMillis() - startedAt;
+            ready = true;
+        }
+
+        logger.info("Warm up {} carts in {} ms, ready for traffic", warmUpCarts, warmUpTime);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getWarmUpCarts() {
+        return warmUpCarts;
+    }
+
+    public long getWarmUpTime() {
+        return warmUpTime;
+    }
+
+    /*
+     * 1 to MAX_GENERATED_TITLES first books with different amounts,
+     * so both fast path and dp of bundle optimizer are used
+     */
+    private List<CreateCartRequest> generateCarts(CatalogIndex catalogIndex) {
+        int titles = Math.min(catalogIndex.size(), MAX_GENERATED_TITLES);
+        List<CreateCartRequest> requests = new ArrayList<>();
+        for (int i = 0; i < titles * 3; i++) {
+            List<CartProductRequest> products = new ArrayList<>();
+            for (int slot = 0; slot <= i % titles; slot++) {
+                products.add(newCartProductRequest(catalogIndex.getId(slot), 1 + (i / titles + slot) % 3));
+            }
+
+            CreateCartRequest request = new CreateCartRequest();
+            request.setProducts(products);
+            requests.add(request);
+        }
+
+        return requests;
+    }
+
+    private List<CreateCartRequest> parseCarts(String carts) {
+        List<CreateCartRequest> requests = new ArrayList<>();
+        for (String cart : carts.split("\\|")) {
+            List<CartProductRequest> products = new ArrayList<>();
+            for (String line : cart.split(",")) {
+                String[] productAmount = line.trim().split(":");
+                if (productAmount.length != 2) {
+                    throw new IllegalArgumentException("Warm up cart line " + line + " is not productId:amount");
+                }
+                products.add(newCartProductRequest(productAmount[0].trim(), Integer.parseInt(productAmount[1].trim())));
+            }
+
+            CreateCartRequest request = new CreateCartRequest();
+            request.setProducts(products);
+            requests.add(request);
+        }
+
+        return requests;
+    }
+
+    private CartProductRequest newCartProductRequest(String productId, int amount) {
+        CartProductRequest cartProductRequest = new CartProductRequest();
+        cartProductRequest.setProductId(productId);
+        cartProductRequest.setAmount(amount);
+
+        return cartProductRequest;
+    }
+}
@@ -0,0 +1,8 @@
+package com.sellsuki.homework.types;
+
+public enum CircuitState {
+
+    CLOSED,     // call normally
+    OPEN,       // fail fast without call
+    HALF_OPEN   // let one call go through to probe that it is back
+}
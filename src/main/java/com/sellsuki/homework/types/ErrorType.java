@@ -4,6 +4,10 @@ public enum ErrorType {
 
     PRODUCT_NOT_FOUND                                  ("4001", "Product not found"),
     CANNOT_GET_BOOK_LIST                               ("4002", "Cannot get book list from api"),
+    TOO_MANY_CARTS                                     ("4003", "Too many carts in batch"),
+    CART_NOT_FOUND                                     ("4004", "Cart not found"),
+    CART_TIMEOUT                                       ("4005", "Cart is not priced in time"),
+    AMOUNT_TOO_LARGE                                   ("4006", "Amount of product is too large"),
     INTERNAL_SERVER_ERROR                              ("500", "Internal server error");
 
     private String code;
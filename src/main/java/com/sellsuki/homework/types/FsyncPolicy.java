@@ -0,0 +1,8 @@
+package com.sellsuki.homework.types;
+
+public enum FsyncPolicy {
+
+    ALWAYS,     // fsync after every batch of journal records, nothing is lost on power failure
+    INTERVAL,   // fsync at most once every ${cart.journal.fsync-interval}, lose at most that time on power failure
+    NEVER       // leave it to the OS, only lost when the machine (not the process) crashes
+}
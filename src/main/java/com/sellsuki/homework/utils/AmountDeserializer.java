@@ -0,0 +1,62 @@
+package com.sellsuki.homework.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+
+/*
+ * read amount of a cart line from json string ("12", the old format) or json number (12) and check it
+ * while the token is read, no regex and no String is created (digits are read from the parser buffer).
+ *
+ * valid amount is 1 to 999999999 with no sign, no leading zero and no space, the same as the old pattern
+ * ^([1-9][0-9]{0,8})$. anything else is read as INVALID, so @Min(1) answers "amount is invalid"
+ * the same as before. null is not given to the deserializer, it is left to @NotNull
+ */
+public class AmountDeserializer extends JsonDeserializer<Integer> {
+
+    public static final int INVALID = 0;
+
+    public static final int MAX_AMOUNT = 999999999;
+
+    private static final int MAX_DIGITS = 9;
+
+    @Override
+    public Integer deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case VALUE_STRING:
+                return parseDigits(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() != JsonParser.NumberType.INT) {
+                    return INVALID;
+                }
+                int amount = parser.getIntValue();
+                return amount >= 1 && amount <= MAX_AMOUNT ? amount : INVALID;
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                // were read as text like "1.5" and "true" before, never a valid amount
+                return INVALID;
+            default:
+                return (Integer) context.handleUnexpectedToken(Integer.class, parser);
+        }
+    }
+
+    static int parseDigits(char[] text, int offset, int length) {
+        if (length < 1 || length > MAX_DIGITS || text[offset] == '0') {
+            return INVALID;
+        }
+
+        int amount = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text[i];
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            amount = amount * 10 + (c - '0');
+        }
+
+        return amount;
+    }
+}
@@ -0,0 +1,339 @@
+package com.sellsuki.homework.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/*
+ * find the split of promotion books into bundles that gives the customer the most discount.
+ *
+ * a bundle is a set of different titles and gets percents[size of bundle] percent of the sum of its prices.
+ * greedy (each round takes one book of every title that still has amount left) is not always the best,
+ * e.g. 2 of A, 1 of B, 1 of C with the same price: {A, B, C} + {A} is 33% but {A, B} + {A, C} is 40%.
+ *
+ * 1. fast path: greedy is the best when tiers never go down and the increase of tiers never goes down,
+ *    and greedy has no round with only one title (at least 2 titles have the largest amount).
+ *    then the closed form is used, cost is O(k log k) for any amount
+ * 2. otherwise dynamic programming over the count vector, the answer is kept in a bounded memo
+ *    shared by all requests so the same cart is not calculated again
+ * 3. when count vector is too big for the dp table (more than maxStates) fall back to greedy
+ *
+ * all values are percent of minor unit (price in satang * percent) and only rounded once at the end
+ */
+public class BundleOptimizer {
+
+    // more titles than this the masks of titles are too many for dp
+    private static final int MAX_DP_TITLES = 12;
+
+    private final int[] percents;
+
+    // greedy is proved to be the best for the cart with at most this number of titles
+    private final int regularTitles;
+
+    private final int maxStates;
+
+    private final int memoSize;
+
+    // read without lock, many request threads price carts of the same group at the same time
+    private final ConcurrentHashMap<Key, Long> memo = new ConcurrentHashMap<>();
+
+    private final AtomicLong fastPathCount = new AtomicLong();
+
+    private final AtomicLong memoHitCount = new AtomicLong();
+
+    private final AtomicLong dpCount = new AtomicLong();
+
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    /*
+     * percents[size] is discount percent of a bundle with that number of titles,
+     * size that is not in the array has no discount
+     */
+    public BundleOptimizer(int[] percents, int memoSize, int maxStates) {
+        this.percents = percents.clone();
+        this.regularTitles = regularTitles(this.percents);
+        this.maxStates = maxStates;
+        this.memoSize = memoSize;
+    }
+
+    /*
+     * prices are in minor unit, prices[i] and amounts[i] are of the same title and every title is different.
+     * return the most discount in percent of minor unit
+     */
+    public long bestDiscount(long[] prices, int[] amounts) {
+        int[] order = sortByAmount(prices, amounts);
+        int k = order.length;
+        long[] sortedPrices = new long[k];
+        int[] sortedAmounts = new int[k];
+        for (int i = 0; i < k; i++) {
+            sortedPrices[i] = prices[order[i]];
+            sortedAmounts[i] = amounts[order[i]];
+        }
+
+        return bestDiscountSorted(sortedPrices, sortedAmounts);
+    }
+
+    /*
+     * same as bestDiscount for titles that are already sorted by amount then price, every amount is more than 0.
+     * caller that keeps its titles in this order skips the sort. the arrays are kept in the memo, do not change them
+     */
+    public long bestDiscountSorted(long[] sortedPrices, int[] sortedAmounts) {
+        if (sortedAmounts.length == 0) {
+            return 0;
+        }
+
+        if (isGreedyBest(sortedAmounts)) {
+            fastPathCount.incrementAndGet();
+            return greedy(sortedPrices, sortedAmounts);
+        }
+
+        Key key = new Key(sortedPrices, sortedAmounts);
+        Long cached = memo.get(key);
+        if (cached != null) {
+            memoHitCount.incrementAndGet();
+            return cached;
+        }
+
+        long discount = dynamic(sortedPrices, sortedAmounts);
+        if (memo.putIfAbsent(key, discount) == null) {
+            evictIfFull();
+        }
+
+        return discount;
+    }
+
+    public int getPercent(int uniqueTitles) {
+        return uniqueTitles < percents.length ? percents[uniqueTitles] : 0;
+    }
+
+    public long getFastPathCount() {
+        return fastPathCount.get();
+    }
+
+    public long getMemoHitCount() {
+        return memoHitCount.get();
+    }
+
+    public long getDpCount() {
+        return dpCount.get();
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount.get();
+    }
+
+    public int getMemoSize() {
+        return memo.size();
+    }
+
+    /*
+     * keep the memo at most memoSize. the entry that is removed is any entry, not the least recently used,
+     * a cart that is still used is calculated again on its next miss and put back
+     */
+    private void evictIfFull() {
+        Iterator<Key> keys = memo.keySet().iterator();
+        while (memo.size() > memoSize && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /*
+     * greedy round by round in closed form. titles are sorted by amount, so every gap between 2 consecutive
+     * amounts is a group of rounds with the same titles (from title i to the last title)
+     */
+    private long greedy(long[] prices, int[] amounts) {
+        int k = prices.length;
+        long[] suffixPrices = new long[k + 1];
+        for (int i = k - 1; i >= 0; i--) {
+            suffixPrices[i] = Math.addExact(suffixPrices[i + 1], prices[i]);
+        }
+
+        long discount = 0;
+        int previousAmount = 0;
+        for (int i = 0; i < k; i++) {
+            int rounds = amounts[i] - previousAmount;
+            if (rounds > 0) {
+                long roundsPrice = Math.multiplyExact(suffixPrices[i], (long) rounds);
+                discount = Math.addExact(discount, Math.multiplyExact(roundsPrice, (long) getPercent(k - i)));
+                previousAmount = amounts[i];
+            }
+        }
+
+        return discount;
+    }
+
+    private boolean isGreedyBest(int[] amounts) {
+        int k = amounts.length;
+        if (k > regularTitles) {
+            return false;
+        }
+
+        // only one title or the largest amount is shared, greedy has no round with one title.
+        // 2 titles can only make pairs, greedy makes the most pairs
+        return k <= 2 || amounts[k - 1] == amounts[k - 2];
+    }
+
+    /*
+     * f(counts) = max of (value of bundle + f(counts - bundle)) for every bundle with the first title that
+     * still has amount left (that book is in some bundle, so it is enough to try only bundles with it).
+     * the table is indexed by counts in mixed radix and filled from the empty cart up
+     */
+    private long dynamic(long[] prices, int[] amounts) {
+        int k = prices.length;
+        int[] counts = amounts.clone();
+        long singles = capLargestTitle(prices, counts);
+
+        long states = 1;
+        for (int i = 0; i < k && states <= maxStates; i++) {
+            states *= counts[i] + 1L;
+        }
+        if (k > MAX_DP_TITLES || states > maxStates) {
+            fallbackCount.incrementAndGet();
+            return greedy(prices, amounts);
+        }
+        dpCount.incrementAndGet();
+
+        int[] strides = new int[k];
+        for (int i = 0, stride = 1; i < k; i++) {
+            strides[i] = stride;
+            stride *= counts[i] + 1;
+        }
+
+        int masks = 1 << k;
+        long[] bundleValues = new long[masks];
+        int[] bundleStrides = new int[masks];
+        for (int mask = 1; mask < masks; mask++) {
+            int lowest = Integer.numberOfTrailingZeros(mask);
+            int rest = mask & (mask - 1);
+            bundleStrides[mask] = bundleStrides[rest] + strides[lowest];
+            bundleValues[mask] = bundleValues[rest] + prices[lowest];
+        }
+        for (int mask = 1; mask < masks; mask++) {
+            bundleValues[mask] = Math.multiplyExact(bundleValues[mask], (long) getPercent(Integer.bitCount(mask)));
+        }
+
+        long[] table = new long[(int) states];
+        int[] current = new int[k];
+        for (int index = 1; index < table.length; index++) {
+            // next count vector, like an odometer
+            for (int i = 0; ; i++) {
+                if (current[i] < counts[i]) {
+                    current[i]++;
+                    break;
+                }
+                current[i] = 0;
+            }
+
+            int left = 0;
+            for (int i = 0; i < k; i++) {
+                if (current[i] > 0) {
+                    left |= 1 << i;
+                }
+            }
+
+            int first = left & -left;
+            int others = left ^ first;
+            long best = 0;
+            for (int sub = others; ; sub = (sub - 1) & others) {
+                int bundle = sub | first;
+                long value = bundleValues[bundle] + table[index - bundleStrides[bundle]];
+                if (value > best) {
+                    best = value;
+                }
+                if (sub == 0) {
+                    break;
+                }
+            }
+            table[index] = best;
+        }
+
+        return Math.addExact(table[table.length - 1], singles);
+    }
+
+    /*
+     * a book of the largest title can only be in a bundle with another title, so at most
+     * (sum of other amounts) of it are not alone. the books more than that are always single bundles
+     */
+    private long capLargestTitle(long[] prices, int[] counts) {
+        int last = counts.length - 1;
+        long others = 0;
+        for (int i = 0; i < last; i++) {
+            others += counts[i];
+        }
+
+        if (counts[last] <= others) {
+            return 0;
+        }
+
+        long singleBooks = counts[last] - others;
+        counts[last] = (int) others;
+
+        return Math.multiplyExact(Math.multiplyExact(singleBooks, prices[last]), (long) getPercent(1));
+    }
+
+    private static int[] sortByAmount(long[] prices, int[] amounts) {
+        return IntStream.range(0, amounts.length)
+                .filter(i -> amounts[i] > 0)
+                .boxed()
+                .sorted((a, b) -> amounts[a] != amounts[b]
+                        ? Integer.compare(amounts[a], amounts[b])
+                        : Long.compare(prices[a], prices[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /*
+     * number of titles that greedy is proved to be the best for: tiers do not go down from 1 title
+     * and the increase from 2 titles up does not go down (merging 2 bundles into a bigger one and a smaller one
+     * never loses discount)
+     */
+    private static int regularTitles(int[] percents) {
+        if (percents.length < 3 || percents[2] < percents[1]) {
+            return 1;
+        }
+
+        int titles = 2;
+        for (int size = 3; size < percents.length; size++) {
+            int increase = percents[size] - percents[size - 1];
+            if (increase < 0 || size > 3 && increase < percents[size - 1] - percents[size - 2]) {
+                break;
+            }
+            titles = size;
+        }
+
+        return titles;
+    }
+
+    // sorted prices and amounts of a cart, same promotion books in any order is the same key
+    private static final class Key {
+
+        private final long[] prices;
+
+        private final int[] amounts;
+
+        private final int hash;
+
+        private Key(long[] prices, int[] amounts) {
+            this.prices = prices;
+            this.amounts = amounts;
+            this.hash = 31 * Arrays.hashCode(prices) + Arrays.hashCode(amounts);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && Arrays.equals(amounts, key.amounts) && Arrays.equals(prices, key.prices);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
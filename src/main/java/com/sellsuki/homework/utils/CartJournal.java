@@ -0,0 +1,596 @@
+package com.sellsuki.homework.utils;
+
+import com.sellsuki.homework.model.CartSession;
+import com.sellsuki.homework.types.FsyncPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * write-behind journal of cart changes, so carts are not lost when the application is restarted.
+ *
+ * request thread only put the change in a bounded queue, one writer thread takes all changes in the queue
+ * (at most batchSize) and writes them to the journal file with one flush and at most one fsync (group commit).
+ * every record is [length][payload][crc32 of payload], a record that is cut by a crash is found by the crc
+ * and the replay stops there.
+ *
+ * records keep the amount of the line after the change, not the amount that is added, so replay the same
+ * record twice gives the same cart. that is why snapshot can be taken from the live carts while requests
+ * keep changing them: when the writer reach the snapshot marker it opens journal-(n + 1) first, then writes
+ * snapshot of generation n + 1, then deletes the older journals. a change that is in both the snapshot
+ * and journal-(n + 1) is only set again. replay reads the snapshot and the journals from its generation up.
+ *
+ * change of one cart must be recorded while the cart is locked, so the records of the cart are in order
+ */
+public class CartJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartJournal.class);
+
+    private static final byte CREATE = 1;
+
+    private static final byte SET_LINE = 2;
+
+    private static final byte REMOVE_LINE = 3;
+
+    private static final byte DELETE = 4;
+
+    // markers for the writer thread, never written to the file
+    private static final byte SNAPSHOT = 5;
+
+    private static final byte STOP = 6;
+
+    private static final int SNAPSHOT_MAGIC = 0x43415254;
+
+    private static final int SNAPSHOT_FORMAT = 1;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private static final String JOURNAL_PREFIX = "journal-";
+
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    // at most one warning of dropped changes in this time, the others are counted in the next warning
+    private static final long DROPPED_LOG_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private static final String DROPPED_LOG_KEY = "dropped";
+
+    // close waits at most this time for the queue and the writer, so a stuck disk cannot hang the shutdown
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    private final File dir;
+
+    private final FsyncPolicy fsyncPolicy;
+
+    private final long fsyncInterval;
+
+    private final int batchSize;
+
+    private final BlockingQueue<Entry> queue;
+
+    private final AtomicLong recordCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong fsyncCount = new AtomicLong();
+
+    private final AtomicLong snapshotCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong lostCount = new AtomicLong();
+
+    private final LogRateLimiter logRateLimiter = new LogRateLimiter();
+
+    // below are only used by the writer thread after start
+    private Supplier<Collection<CartSession>> sessions;
+
+    private Thread writer;
+
+    private long generation;
+
+    private FileOutputStream journalFile;
+
+    private DataOutputStream journal;
+
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+
+    private final CRC32 crc = new CRC32();
+
+    private boolean dirty;
+
+    // a batch could not be written, the journal is rotated so the next snapshot has the lost records again
+    private boolean broken;
+
+    private long lastFsyncAt;
+
+    public CartJournal(File dir, FsyncPolicy fsyncPolicy, long fsyncInterval, int queueSize, int batchSize) {
+        this.dir = dir;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /*
+     * carts from the last snapshot and the journals after it, call before start.
+     * lines have no price yet, the cart must be reindexed with the catalog before it is used
+     */
+    public Map<String, CartSession> replay() throws IOException {
+        Files.createDirectories(dir.toPath());
+
+        Map<String, CartSession> carts = new LinkedHashMap<>();
+        long fromGeneration = readSnapshot(carts);
+
+        for (Map.Entry<Long, File> file : listJournals().entrySet()) {
+            if (file.getKey() >= fromGeneration) {
+                readJournal(file.getValue(), carts);
+            }
+            generation = Math.max(generation, file.getKey());
+        }
+        generation = Math.max(generation, fromGeneration);
+
+        return carts;
+    }
+
+    /*
+     * compact the replayed carts to a new snapshot and start the writer thread.
+     * sessions give the live carts for the next snapshots
+     */
+    public void start(Supplier<Collection<CartSession>> sessions) throws IOException {
+        this.sessions = sessions;
+        rotate();
+
+        writer = new Thread(this::writeLoop, "cart-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void recordCreate(String cartId, long now) {
+        enqueue(new Entry(CREATE, cartId, now, null, 0));
+    }
+
+    public void recordSetLine(String cartId, long now, String productId, int amount) {
+        enqueue(new Entry(SET_LINE, cartId, now, productId, amount));
+    }
+
+    public void recordRemoveLine(String cartId, long now, String productId) {
+        enqueue(new Entry(REMOVE_LINE, cartId, now, productId, 0));
+    }
+
+    public void recordDelete(String cartId) {
+        enqueue(new Entry(DELETE, cartId, 0, null, 0));
+    }
+
+    // snapshot is taken by the writer thread, so it is in order with the records
+    public void requestSnapshot() {
+        if (!queue.offer(new Entry(SNAPSHOT, null, 0, null, 0))) {
+            logger.warn("Cart journal queue is full, skip snapshot");
+        }
+    }
+
+    // write all records in the queue and fsync, records after close are dropped
+    public void close() throws InterruptedException {
+        close(CLOSE_TIMEOUT);
+    }
+
+    // same as close but wait at most timeout milliseconds, the records that are not written then are lost
+    public void close(long timeout) throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + timeout;
+        if (!queue.offer(new Entry(STOP, null, 0, null, 0), timeout, TimeUnit.MILLISECONDS)) {
+            logger.error("Cart journal queue is still full after {} ms, stop the writer", timeout);
+            writer.interrupt();
+        }
+        writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+        if (writer.isAlive()) {
+            logger.error("Cart journal writer does not stop in {} ms, records in queue are lost queue={}",
+                    timeout, queue.size());
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getRecordCount() {
+        return recordCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getFsyncCount() {
+        return fsyncCount.get();
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    // records of the batches that could not be written, the snapshot after the failure has them again
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    /*
+     * never block the request. when the disk is too slow and the queue is full the change is dropped,
+     * the next snapshot has it again
+     */
+    private void enqueue(Entry entry) {
+        if (!queue.offer(entry)) {
+            droppedCount.incrementAndGet();
+            long suppressed = logRateLimiter.tryAcquire(DROPPED_LOG_KEY, DROPPED_LOG_INTERVAL);
+            if (suppressed >= 0) {
+                logger.warn("Cart journal queue is full, changes are dropped until the next snapshot dropped={}",
+                        suppressed + 1);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                Entry first = queue.poll(fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncInterval : 1000, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                if (broken && first != null) {
+                    broken = !rotateOrKeep();
+                }
+
+                for (Entry entry : batch) {
+                    if (entry.type == STOP) {
+                        stop = true;
+                        break;
+                    }
+                    if (entry.type == SNAPSHOT) {
+                        rotateOrKeep();
+                    } else {
+                        write(entry);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batchCount.incrementAndGet();
+                }
+                batch.clear();
+
+                journal.flush();
+                fsync(stop || fsyncPolicy == FsyncPolicy.ALWAYS
+                        || fsyncPolicy == FsyncPolicy.INTERVAL && System.currentTimeMillis() - lastFsyncAt >= fsyncInterval);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                stop = true;
+            } catch (Exception ex) {
+                // stop marker must not be lost with the batch, otherwise close waits forever.
+                // the whole batch is counted as lost, some of its records may be in the file already
+                long lost = 0;
+                for (Entry entry : batch) {
+                    stop |= entry.type == STOP;
+                    if (entry.type != SNAPSHOT && entry.type != STOP) {
+                        lost++;
+                    }
+                }
+                batch.clear();
+                lostCount.addAndGet(lost);
+                broken = true;
+                logger.error("Cannot write cart journal, {} records are lost until the next snapshot: {}",
+                        lost, ex.getMessage());
+            }
+        }
+
+        if (broken) {
+            rotateOrKeep();
+        }
+        closeJournal();
+    }
+
+    private void write(Entry entry) throws IOException {
+        payload.reset();
+        DataOutputStream record = new DataOutputStream(payload);
+        record.writeByte(entry.type);
+        record.writeUTF(entry.cartId);
+        record.writeLong(entry.time);
+        if (entry.type == SET_LINE || entry.type == REMOVE_LINE) {
+            record.writeUTF(entry.productId);
+        }
+        if (entry.type == SET_LINE) {
+            record.writeInt(entry.amount);
+        }
+
+        crc.reset();
+        crc.update(payload.toByteArray(), 0, payload.size());
+
+        journal.writeInt(payload.size());
+        payload.writeTo(journal);
+        journal.writeInt((int) crc.getValue());
+
+        recordCount.incrementAndGet();
+        dirty = true;
+    }
+
+    private void fsync(boolean due) throws IOException {
+        if (dirty && due && fsyncPolicy != FsyncPolicy.NEVER) {
+            journalFile.getChannel().force(false);
+            fsyncCount.incrementAndGet();
+            dirty = false;
+            lastFsyncAt = System.currentTimeMillis();
+        }
+    }
+
+    /*
+     * next generation: new journal first, then snapshot of the live carts, then delete the journals
+     * the snapshot already has.
+     * the new journal is opened before the old one is closed, so when it cannot be opened the records still go
+     * to the old journal. when the snapshot cannot be written the older journals are kept, replay still has all.
+     * broken journal is not flushed again, its tail is cut and the snapshot has the records instead
+     */
+    private void rotate() throws IOException {
+        long next = generation + 1;
+
+        if (journal != null && !broken) {
+            journal.flush();
+            journalFile.getChannel().force(false);
+            dirty = false;
+        }
+        FileOutputStream nextFile = new FileOutputStream(journalFileOf(next), true);
+        closeJournal();
+        journalFile = nextFile;
+        journal = new DataOutputStream(new BufferedOutputStream(nextFile, 64 * 1024));
+        generation = next;
+
+        writeSnapshot(next);
+        snapshotCount.incrementAndGet();
+
+        for (Map.Entry<Long, File> file : listJournals().entrySet()) {
+            if (file.getKey() < next) {
+                Files.deleteIfExists(file.getValue().toPath());
+            }
+        }
+    }
+
+    /*
+     * failed snapshot is tried again at the next snapshot interval (or the next batch when the journal is broken),
+     * records after it in the batch are still written. return false when it is failed
+     */
+    private boolean rotateOrKeep() {
+        try {
+            rotate();
+            return true;
+        } catch (IOException ex) {
+            logger.error("Cannot take cart snapshot, keep writing journal-{}: {}", generation, ex.getMessage());
+            return false;
+        }
+    }
+
+    // write to a temp file and rename, so the snapshot file is always complete
+    private void writeSnapshot(long snapshotGeneration) throws IOException {
+        File temp = new File(dir, SNAPSHOT_FILE + ".tmp");
+        List<CartSession> carts = new ArrayList<>(sessions.get());
+
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(snapshotGeneration);
+            out.writeInt(carts.size());
+            for (CartSession cart : carts) {
+                synchronized (cart) {
+                    List<CartSession.CartLine> lines = cart.getLines();
+                    out.writeUTF(cart.getId());
+                    out.writeLong(cart.getLastAccessedAt());
+                    out.writeInt(lines.size());
+                    for (CartSession.CartLine line : lines) {
+                        out.writeUTF(line.getProductId());
+                        out.writeInt(line.getAmount());
+                    }
+                }
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getChannel().force(true);
+        }
+
+        Files.move(temp.toPath(), new File(dir, SNAPSHOT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // return generation of the snapshot, 0 when there is no snapshot
+    private long readSnapshot(Map<String, CartSession> carts) {
+        File file = new File(dir, SNAPSHOT_FILE);
+        if (!file.isFile()) {
+            return 0;
+        }
+
+        Map<String, CartSession> snapshot = new LinkedHashMap<>();
+        try (FileInputStream input = new FileInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(input, 64 * 1024), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException("unknown format");
+            }
+
+            long snapshotGeneration = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                CartSession cart = new CartSession(in.readUTF(), in.readLong());
+                int lines = in.readInt();
+                for (int j = 0; j < lines; j++) {
+                    cart.restoreLine(in.readUTF(), in.readInt());
+                }
+                snapshot.put(cart.getId(), cart);
+            }
+
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("checksum is wrong");
+            }
+
+            carts.putAll(snapshot);
+            return snapshotGeneration;
+        } catch (IOException ex) {
+            // replay all journals that are left instead of not starting
+            logger.error("Cannot read cart snapshot {}, replay journals only: {}", file, ex.getMessage());
+            return 0;
+        }
+    }
+
+    private void readJournal(File file, Map<String, CartSession> carts) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            CRC32 recordCrc = new CRC32();
+            byte[] buffer = new byte[MAX_RECORD_LENGTH];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException ex) {
+                    return;
+                }
+
+                try {
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        throw new IOException("wrong record length " + length);
+                    }
+                    in.readFully(buffer, 0, length);
+                    recordCrc.reset();
+                    recordCrc.update(buffer, 0, length);
+                    if (in.readInt() != (int) recordCrc.getValue()) {
+                        throw new IOException("checksum is wrong");
+                    }
+                } catch (IOException ex) {
+                    // the last batch was cut by a crash, it was never fsynced so nothing after it is valid
+                    logger.warn("Cart journal {} is cut at a broken record, skip the rest: {}", file, ex.getMessage());
+                    return;
+                }
+
+                apply(new DataInputStream(new ByteArrayInputStream(buffer, 0, length)), carts);
+            }
+        }
+    }
+
+    private void apply(DataInputStream record, Map<String, CartSession> carts) throws IOException {
+        byte type = record.readByte();
+        String cartId = record.readUTF();
+        long time = record.readLong();
+
+        if (type == DELETE) {
+            carts.remove(cartId);
+            return;
+        }
+        if (type == CREATE) {
+            carts.putIfAbsent(cartId, new CartSession(cartId, time));
+        }
+
+        CartSession cart = carts.get(cartId);
+        if (cart == null) {
+            return;
+        }
+        if (type == SET_LINE) {
+            cart.restoreLine(record.readUTF(), record.readInt());
+        } else if (type == REMOVE_LINE) {
+            cart.removeLine(record.readUTF());
+        }
+        cart.touch(time);
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            logger.error("Cannot close cart journal: {}", ex.getMessage());
+        }
+        journal = null;
+        journalFile = null;
+    }
+
+    // journal files by generation
+    private Map<Long, File> listJournals() {
+        Map<Long, File> journals = new TreeMap<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return journals;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+                try {
+                    journals.put(Long.valueOf(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length())), file);
+                } catch (NumberFormatException ex) {
+                    logger.warn("Skip unknown file {} in cart journal directory", file);
+                }
+            }
+        }
+
+        return journals;
+    }
+
+    private File journalFileOf(long journalGeneration) {
+        return new File(dir, JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+
+    private static final class Entry {
+
+        private final byte type;
+
+        private final String cartId;
+
+        private final long time;
+
+        private final String productId;
+
+        private final int amount;
+
+        private Entry(byte type, String cartId, long time, String productId, int amount) {
+            this.type = type;
+            this.cartId = cartId;
+            this.time = time;
+            this.productId = productId;
+            this.amount = amount;
+        }
+    }
+}
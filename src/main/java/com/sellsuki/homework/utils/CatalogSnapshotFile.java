@@ -0,0 +1,174 @@
+package com.sellsuki.homework.utils;
+
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * book list on disk, so the catalog is ready when the application is started before book list api is called.
+ *
+ * [magic][format][saved at][number of books] then id, title, cover, price of every book as
+ * [length][utf-8 bytes] (length -1 is null), then crc32 of all bytes before it.
+ * the file is written to a temp file and renamed, so reader never see a half written file.
+ * the file is small and read once at start, so it is read to one heap buffer with one channel read (no mapping
+ * that stays until gc) and the index is built from that buffer
+ */
+public class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x43544c47;
+
+    // change when the layout is changed, file of other format is not read
+    private static final int FORMAT = 1;
+
+    private static final int CHECKSUM_LENGTH = 8;
+
+    private final File file;
+
+    public CatalogSnapshotFile(File file) {
+        this.file = file;
+    }
+
+    public boolean exists() {
+        return file.isFile();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void write(CatalogIndex catalogIndex, long savedAt) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(dir.toPath());
+        File temp = new File(dir, file.getName() + ".tmp");
+
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(output, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(savedAt);
+            out.writeInt(catalogIndex.size());
+            for (int slot = 0; slot < catalogIndex.size(); slot++) {
+                writeText(out, catalogIndex.getId(slot));
+                writeText(out, catalogIndex.getTitle(slot));
+                writeText(out, catalogIndex.getCover(slot));
+                writeText(out, catalogIndex.getPrice(slot));
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            output.getChannel().force(true);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // throw IOException when the file is not complete, wrong format or checksum is wrong
+    public Snapshot read() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 20 + CHECKSUM_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException("wrong file size " + size);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("file is shorter than " + size);
+                }
+            }
+            buffer.flip();
+            int end = (int) size - CHECKSUM_LENGTH;
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit(end);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (buffer.getLong(end) != crc.getValue()) {
+                throw new IOException("checksum is wrong");
+            }
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a catalog snapshot");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT) {
+                throw new IOException("unknown format " + format);
+            }
+
+            long savedAt = buffer.getLong();
+            int count = buffer.getInt();
+            buffer.limit(end);
+
+            CatalogIndex.Builder builder = CatalogIndex.builder();
+            for (int i = 0; i < count; i++) {
+                Book book = new Book();
+                book.setId(readText(buffer));
+                book.setTitle(readText(buffer));
+                book.setCover(readText(buffer));
+                book.setPrice(readText(buffer));
+                builder.add(book);
+            }
+
+            return new Snapshot(builder.build(), savedAt);
+        } catch (RuntimeException ex) {
+            // cut or broken file read past the end
+            throw new IOException("broken file: " + ex, ex);
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static class Snapshot {
+
+        private final CatalogIndex catalogIndex;
+
+        private final long savedAt;
+
+        private Snapshot(CatalogIndex catalogIndex, long savedAt) {
+            this.catalogIndex = catalogIndex;
+            this.savedAt = savedAt;
+        }
+
+        public CatalogIndex getCatalogIndex() {
+            return catalogIndex;
+        }
+
+        public long getSavedAt() {
+            return savedAt;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sellsuki.homework.utils;
+
+import com.sellsuki.homework.types.CircuitState;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * open the circuit after ${failureThreshold} failures in a row, then fail fast for ${openDuration} milliseconds.
+ * after that only one caller is allowed to probe, success close the circuit and failure open it again
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private final AtomicReference<CircuitState> state = new AtomicReference<>(CircuitState.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    public boolean allowRequest(long now) {
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                // only the caller that change state to half open can probe
+                return now - openedAt >= openDuration && state.compareAndSet(CircuitState.OPEN, CircuitState.HALF_OPEN);
+            default:
+                return false;
+        }
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(CircuitState.CLOSED);
+    }
+
+    public void onFailure(long now) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state.get() == CircuitState.HALF_OPEN || failures >= failureThreshold) {
+            openedAt = now;
+            state.set(CircuitState.OPEN);
+        }
+    }
+
+    public CircuitState getState() {
+        return state.get();
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getOpenedAt() {
+        return openedAt;
+    }
+}
@@ -2,6 +2,42 @@ package com.sellsuki.homework.utils;
 
 public class Constants {
 
-    public final static String PROMOTION_BOOK_ID              = "${promotion.bookid}";
-    public final static String BOOK_LIST_ENDPOINT             = "${booklist.endpoint}";
+    public final static String PROMOTION_BOOK_ID                      = "${promotion.bookid}";
+    public final static String PROMOTION_TIERS                        = "${promotion.tiers}";
+    public final static String PROMOTION_RULES_FILE                   = "${promotion.rules.file}";
+    public final static String PROMOTION_RULES_RELOAD_INTERVAL        = "${promotion.rules.reload-interval}";
+    public final static String PROMOTION_BUNDLE_MEMO_SIZE             = "${promotion.bundle.memo-size}";
+    public final static String PROMOTION_BUNDLE_MAX_STATES            = "${promotion.bundle.max-states}";
+    public final static String CART_BATCH_MAX_SIZE                    = "${cart.batch.max-size}";
+    public final static String CART_BATCH_PARALLEL_THRESHOLD          = "${cart.batch.parallel-threshold}";
+    public final static String CART_BATCH_PARALLELISM                 = "${cart.batch.parallelism}";
+    public final static String CART_ASYNC_TIMEOUT                     = "${cart.async.timeout}";
+    public final static String CART_QUOTE_CACHE_MAX_SIZE              = "${cart.quote-cache.max-size}";
+    public final static String CART_QUOTE_CACHE_SEGMENTS              = "${cart.quote-cache.segments}";
+    public final static String CART_SESSION_TTL                       = "${cart.session.ttl}";
+    public final static String CART_SESSION_SWEEP_INTERVAL            = "${cart.session.sweep-interval}";
+    public final static String CART_JOURNAL_DIR                       = "${cart.journal.dir}";
+    public final static String CART_JOURNAL_FSYNC                     = "${cart.journal.fsync}";
+    public final static String CART_JOURNAL_FSYNC_INTERVAL            = "${cart.journal.fsync-interval}";
+    public final static String CART_JOURNAL_QUEUE_SIZE                = "${cart.journal.queue-size}";
+    public final static String CART_JOURNAL_BATCH_SIZE                = "${cart.journal.batch-size}";
+    public final static String CART_JOURNAL_SNAPSHOT_INTERVAL         = "${cart.journal.snapshot-interval}";
+    public final static String WARMUP_ENABLED                         = "${warmup.enabled}";
+    public final static String WARMUP_CARTS                           = "${warmup.carts}";
+    public final static String WARMUP_ITERATIONS                      = "${warmup.iterations}";
+    public final static String BOOK_LIST_ENDPOINT                     = "${booklist.endpoint}";
+    public final static String CATALOG_CACHE_TTL                      = "${catalog.cache.ttl}";
+    public final static String CATALOG_CACHE_REFRESH_INTERVAL         = "${catalog.cache.refresh-interval}";
+    public final static String CATALOG_CACHE_MAX_STALE                = "${catalog.cache.max-stale}";
+    public final static String CATALOG_CACHE_JOIN_TIMEOUT             = "${catalog.cache.join-timeout}";
+    public final static String CATALOG_SNAPSHOT_FILE                  = "${catalog.snapshot.file}";
+    public final static String CATALOG_BREAKER_FAILURE_THRESHOLD      = "${catalog.breaker.failure-threshold}";
+    public final static String CATALOG_BREAKER_OPEN_DURATION          = "${catalog.breaker.open-duration}";
+    public final static String HTTP_CLIENT_MAX_TOTAL                  = "${http.client.max-total}";
+    public final static String HTTP_CLIENT_MAX_PER_ROUTE              = "${http.client.max-per-route}";
+    public final static String HTTP_CLIENT_CONNECT_TIMEOUT            = "${http.client.connect-timeout}";
+    public final static String HTTP_CLIENT_READ_TIMEOUT               = "${http.client.read-timeout}";
+    public final static String HTTP_CLIENT_CONNECTION_REQUEST_TIMEOUT = "${http.client.connection-request-timeout}";
+    public final static String HTTP_CLIENT_KEEP_ALIVE                 = "${http.client.keep-alive}";
+    public final static String ERROR_LOG_INTERVAL                     = "${error.log.interval}";
 }
@@ -0,0 +1,127 @@
+package com.sellsuki.homework.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * lock free histogram of non negative long values (latency, size, count) that is cheap enough to keep on
+ * in production. record is a few bit operations and atomic adds on arrays that are created once, no lock and
+ * no object is created.
+ *
+ * buckets are log linear: values below 16 have their own bucket, bigger values are put in 16 buckets for every
+ * power of 2, so a percentile is at most 1/16 (6.25%) bigger than the real value. values are kept since start,
+ * compare 2 snapshots for the values in between
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // 16 linear buckets, then 16 buckets for each power of 2 up to Long.MAX_VALUE
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    // negative value is recorded as 0
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        counts.incrementAndGet(bucketOf(value));
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /*
+     * counts of all buckets are read once. record that is running at the same time may be in the
+     * count but not in the sum yet, the snapshot is still good for monitoring
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            bucketCounts[bucket] = counts.get(bucket);
+            count += bucketCounts[bucket];
+        }
+
+        return new Snapshot(bucketCounts, count, sum.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // biggest value that is put in the bucket
+    static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] bucketCounts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        private Snapshot(long[] bucketCounts, long count, long sum, long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // percentile is 0 to 100, value is the highest value of the bucket but never more than max
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+                seen += bucketCounts[bucket];
+                if (seen >= rank) {
+                    return Math.min(highestOf(bucket), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
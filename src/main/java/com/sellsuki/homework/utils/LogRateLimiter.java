@@ -0,0 +1,46 @@
+package com.sellsuki.homework.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * allow one log of the same key (e.g. exception class) per interval, the others are only counted.
+ * the count is given to the next log, so the log still tell how many times it happened.
+ * lock free and nothing is created after the first event of a key
+ */
+public class LogRateLimiter {
+
+    private final ConcurrentMap<Object, Window> windows = new ConcurrentHashMap<>();
+
+    /*
+     * return number of events of the key that are not logged since the last log when this one should be logged,
+     * otherwise -1. interval 0 or less logs every event
+     */
+    public long tryAcquire(Object key, long interval) {
+        if (interval <= 0) {
+            return 0;
+        }
+
+        Window window = windows.get(key);
+        if (window == null) {
+            window = windows.computeIfAbsent(key, newKey -> new Window());
+        }
+
+        long now = System.currentTimeMillis();
+        long nextLogAt = window.nextLogAt.get();
+        if (now >= nextLogAt && window.nextLogAt.compareAndSet(nextLogAt, now + interval)) {
+            return window.suppressed.getAndSet(0);
+        }
+
+        window.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    private static class Window {
+
+        private final AtomicLong nextLogAt = new AtomicLong();
+
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+}
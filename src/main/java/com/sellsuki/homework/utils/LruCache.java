@@ -0,0 +1,110 @@
+package com.sellsuki.homework.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * bounded least recently used cache for many request threads.
+ *
+ * keys are spread to segments by hash, every segment is a small LinkedHashMap in access order with its own lock,
+ * so threads only wait for each other when their keys are in the same segment.
+ * when a segment is full the least recently used entry of that segment is evicted
+ */
+public class LruCache<K, V> {
+
+    private final Segment<K, V>[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int maxSize, int segmentCount) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(segmentCount, maxSize)));
+        int segmentSize = Math.max(1, (maxSize + count - 1) / count);
+
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(segmentSize, evictionCount);
+        }
+    }
+
+    // return null when not found
+    public V get(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        V value;
+        synchronized (segment) {
+            value = segment.get(key);
+        }
+
+        (value == null ? missCount : hitCount).incrementAndGet();
+        return value;
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private Segment<K, V> segmentOf(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+
+        private final AtomicLong evictionCount;
+
+        private Segment(int maxSize, AtomicLong evictionCount) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -4,4 +4,15 @@ public class Protocol {
 
     public final static String API                      = "/api";
     public final static String CART                     = "/cart";
+    public final static String CART_BATCH               = "/cart/batch";
+    public final static String CART_ASYNC               = "/cart/async";
+    public final static String CARTS                    = "/carts";
+    public final static String CARTS_ID                 = "/carts/{cartId}";
+    public final static String CARTS_LINES              = "/carts/{cartId}/lines";
+    public final static String CARTS_LINE               = "/carts/{cartId}/lines/{productId}";
+    public final static String MONITOR_CATALOG          = "/monitor/catalog";
+    public final static String MONITOR_HTTP_CLIENT      = "/monitor/http-client";
+    public final static String MONITOR_METRICS          = "/monitor/metrics";
+    public final static String MONITOR_QUOTE_CACHE      = "/monitor/quote-cache";
+    public final static String MONITOR_READY            = "/monitor/ready";
 }
@@ -0,0 +1,108 @@
+package com.sellsuki.homework.config;
+
+import com.sellsuki.homework.controller.MonitorController;
+import com.sellsuki.homework.response.HttpClientStatusResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HttpClientConfigTest {
+
+    private static final byte[] BODY = "{\"books\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    private HttpClientConfig httpClientConfig = new HttpClientConfig();
+
+    private HttpClientMetrics httpClientMetrics = new HttpClientMetrics();
+
+    private HttpServer server;
+
+    private final AtomicInteger serverRequests = new AtomicInteger();
+
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    private CloseableHttpClient httpClient;
+
+    private RestTemplate restTemplate;
+
+    @Before
+    public void setUp() throws Exception {
+        // response with content length keeps the connection open for the next request
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/books", exchange -> {
+            serverRequests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(BODY);
+            }
+        });
+        server.start();
+
+        ReflectionTestUtils.setField(httpClientConfig, "httpClientMetrics", httpClientMetrics);
+        ReflectionTestUtils.setField(httpClientConfig, "maxTotal", 10);
+        ReflectionTestUtils.setField(httpClientConfig, "maxPerRoute", 5);
+        ReflectionTestUtils.setField(httpClientConfig, "connectTimeout", 2000);
+        ReflectionTestUtils.setField(httpClientConfig, "readTimeout", 5000);
+        ReflectionTestUtils.setField(httpClientConfig, "connectionRequestTimeout", 1000);
+        ReflectionTestUtils.setField(httpClientConfig, "keepAlive", 30000L);
+
+        connectionManager = httpClientConfig.poolingConnectionManager();
+        httpClient = httpClientConfig.httpClient(connectionManager);
+        restTemplate = httpClientConfig.restTemplate(httpClient);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void shouldReuseConnectionWhenSendManyRequests() {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("{\"books\":[]}", restTemplate.getForObject(url(), String.class));
+        }
+
+        Assert.assertEquals(3, serverRequests.get());
+        Assert.assertEquals(3, httpClientMetrics.getRequestCount());
+        Assert.assertEquals(1, httpClientMetrics.getConnectionCreatedCount());
+        Assert.assertEquals(2, httpClientMetrics.getConnectionReusedCount());
+        Assert.assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        Assert.assertEquals(0, connectionManager.getTotalStats().getLeased());
+    }
+
+    @Test
+    public void shouldShowSameNumbersOfInterceptorInMonitor() {
+        for (int i = 0; i < 4; i++) {
+            restTemplate.getForObject(url(), String.class);
+        }
+
+        MonitorController monitorController = new MonitorController();
+        ReflectionTestUtils.setField(monitorController, "poolingConnectionManager", connectionManager);
+        ReflectionTestUtils.setField(monitorController, "httpClientMetrics", httpClientMetrics);
+
+        HttpClientStatusResponse status = monitorController.getHttpClientStatus().getBody().getData();
+
+        Assert.assertEquals(Long.valueOf(serverRequests.get()), status.getRequestCount());
+        Assert.assertEquals(Long.valueOf(httpClientMetrics.getConnectionCreatedCount()), status.getConnectionCreatedCount());
+        Assert.assertEquals(Long.valueOf(3), status.getConnectionReusedCount());
+        Assert.assertEquals(Integer.valueOf(1), status.getAvailable());
+        Assert.assertEquals(Integer.valueOf(0), status.getLeased());
+        Assert.assertEquals(Integer.valueOf(10), status.getMax());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/books";
+    }
+}
@@ -1,27 +1,42 @@
 package com.sellsuki.homework.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.exceptions.BadRequestException;
 import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.request.CreateCartBatchRequest;
 import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartBatchResponse;
 import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.response.Response;
 import com.sellsuki.homework.service.CartService;
+import com.sellsuki.homework.types.ErrorType;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CartControllerTest {
@@ -36,9 +51,13 @@ public class CartControllerTest {
     @Mock
     private CartService cartService;
 
+    @Spy
+    private PricingMetrics pricingMetrics = new PricingMetrics();
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(cartController, "asyncTimeout", 10000L);
 
         mockMvc = MockMvcBuilders.standaloneSetup(cartController)
                 .setControllerAdvice(new GlobalExceptionHandler())
@@ -85,7 +104,7 @@ public class CartControllerTest {
         String url = "/api/cart";
 
         CartProductRequest cartProductRequest = new CartProductRequest();
-        cartProductRequest.setAmount("1");
+        cartProductRequest.setAmount(1);
 
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
         cartProductRequests.add(cartProductRequest);
@@ -110,7 +129,7 @@ public class CartControllerTest {
 
         CartProductRequest cartProductRequest = new CartProductRequest();
         cartProductRequest.setProductId("");
-        cartProductRequest.setAmount("1");
+        cartProductRequest.setAmount(1);
 
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
         cartProductRequests.add(cartProductRequest);
@@ -157,19 +176,30 @@ public class CartControllerTest {
     public void shouldExceptionWhenCreateCartWithAmountIsEmpty() throws Exception {
         String url = "/api/cart";
 
-        CartProductRequest cartProductRequest = new CartProductRequest();
-        cartProductRequest.setProductId("123456789");
-        cartProductRequest.setAmount("");
+        // amount is sent as json string, the same as the clients send it
+        String request = "{\"products\":[{\"productId\":\"123456789\",\"amount\":\"\"}]}";
 
-        List<CartProductRequest> cartProductRequests = new ArrayList<>();
-        cartProductRequests.add(cartProductRequest);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(request)
+                .contentType(MediaType.APPLICATION_JSON);
 
-        CreateCartRequest request = new CreateCartRequest();
-        request.setProducts(cartProductRequests);
+        mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("400"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("amount is invalid"));
+    }
+
+    @Test
+    public void shouldExceptionWhenCreateCartWithAmountIsNotNumber() throws Exception {
+        String url = "/api/cart";
+
+        // amount is sent as json string, the same as the clients send it
+        String request = "{\"products\":[{\"productId\":\"123456789\",\"amount\":\"hello\"}]}";
 
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
                 .post(url)
-                .content(mapper.writeValueAsString(request))
+                .content(request)
                 .contentType(MediaType.APPLICATION_JSON);
 
         mockMvc.perform(builder)
@@ -179,22 +209,33 @@ public class CartControllerTest {
     }
 
     @Test
-    public void shouldExceptionWhenCreateCartWithAmountIsNotNumber() throws Exception {
+    public void shouldExceptionWhenCreateCartWithAmountIsInvalidLength() throws Exception {
         String url = "/api/cart";
 
-        CartProductRequest cartProductRequest = new CartProductRequest();
-        cartProductRequest.setProductId("123456789");
-        cartProductRequest.setAmount("hello");
+        // amount is sent as json string, the same as the clients send it
+        String request = "{\"products\":[{\"productId\":\"123456789\",\"amount\":\"1234567890987654321\"}]}";
 
-        List<CartProductRequest> cartProductRequests = new ArrayList<>();
-        cartProductRequests.add(cartProductRequest);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(request)
+                .contentType(MediaType.APPLICATION_JSON);
 
-        CreateCartRequest request = new CreateCartRequest();
-        request.setProducts(cartProductRequests);
+        mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("400"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("amount is invalid"));
+    }
+
+    @Test
+    public void shouldExceptionWhenCreateCartWithAmountIsZero() throws Exception {
+        String url = "/api/cart";
+
+        // amount is sent as json string, the same as the clients send it
+        String request = "{\"products\":[{\"productId\":\"123456789\",\"amount\":\"0\"}]}";
 
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
                 .post(url)
-                .content(mapper.writeValueAsString(request))
+                .content(request)
                 .contentType(MediaType.APPLICATION_JSON);
 
         mockMvc.perform(builder)
@@ -204,12 +245,12 @@ public class CartControllerTest {
     }
 
     @Test
-    public void shouldExceptionWhenCreateCartWithAmountIsInvalidLength() throws Exception {
+    public void shouldSuccessWhenCreateCart() throws Exception {
         String url = "/api/cart";
 
         CartProductRequest cartProductRequest = new CartProductRequest();
-        cartProductRequest.setProductId("123456789");
-        cartProductRequest.setAmount("1234567890987654321");
+        cartProductRequest.setProductId("1234");
+        cartProductRequest.setAmount(1);
 
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
         cartProductRequests.add(cartProductRequest);
@@ -217,30 +258,56 @@ public class CartControllerTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
+        Mockito.when(cartService.createCart(Mockito.any())).thenReturn(new CreateCartResponse());
+
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
                 .post(url)
                 .content(mapper.writeValueAsString(request))
                 .contentType(MediaType.APPLICATION_JSON);
 
-        mockMvc.perform(builder)
-                .andExpect(MockMvcResultMatchers.status().isBadRequest())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("400"))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("amount is invalid"));
+        mockMvc.perform(builder).andExpect(MockMvcResultMatchers.status().isOk());
     }
 
     @Test
-    public void shouldExceptionWhenCreateCartWithAmountIsZero() throws Exception {
+    public void shouldSuccessWhenCreateCartWithAmountIsNumber() throws Exception {
         String url = "/api/cart";
 
+        String request = "{\"products\":[{\"productId\":\"1\",\"amount\":2}]}";
+
+        Mockito.when(cartService.createCart(Mockito.any())).thenReturn(new CreateCartResponse());
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(request)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        mockMvc.perform(builder).andExpect(MockMvcResultMatchers.status().isOk());
+
+        ArgumentCaptor<CreateCartRequest> captor = ArgumentCaptor.forClass(CreateCartRequest.class);
+        Mockito.verify(cartService).createCart(captor.capture());
+        Assert.assertEquals(Integer.valueOf(2), captor.getValue().getProducts().get(0).getAmount());
+    }
+
+    @Test
+    public void shouldExceptionWhenCreateCartsWithInvalidCart() throws Exception {
+        String url = "/api/cart/batch";
+
         CartProductRequest cartProductRequest = new CartProductRequest();
-        cartProductRequest.setProductId("123456789");
-        cartProductRequest.setAmount("0");
+        cartProductRequest.setProductId("1234");
+        cartProductRequest.setAmount(1);
 
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
         cartProductRequests.add(cartProductRequest);
 
-        CreateCartRequest request = new CreateCartRequest();
-        request.setProducts(cartProductRequests);
+        CreateCartRequest validCart = new CreateCartRequest();
+        validCart.setProducts(cartProductRequests);
+
+        List<CreateCartRequest> carts = new ArrayList<>();
+        carts.add(validCart);
+        carts.add(new CreateCartRequest());
+
+        CreateCartBatchRequest request = new CreateCartBatchRequest();
+        request.setCarts(carts);
 
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
                 .post(url)
@@ -250,30 +317,137 @@ public class CartControllerTest {
         mockMvc.perform(builder)
                 .andExpect(MockMvcResultMatchers.status().isBadRequest())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("400"))
-                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("amount is invalid"));
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("have no product to select"));
     }
 
     @Test
-    public void shouldSuccessWhenCreateCart() throws Exception {
-        String url = "/api/cart";
+    public void shouldSuccessWhenCreateCarts() throws Exception {
+        String url = "/api/cart/batch";
 
         CartProductRequest cartProductRequest = new CartProductRequest();
         cartProductRequest.setProductId("1234");
-        cartProductRequest.setAmount("1");
+        cartProductRequest.setAmount(1);
 
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
         cartProductRequests.add(cartProductRequest);
 
-        CreateCartRequest request = new CreateCartRequest();
-        request.setProducts(cartProductRequests);
+        CreateCartRequest cart = new CreateCartRequest();
+        cart.setProducts(cartProductRequests);
 
-        Mockito.when(cartService.createCart(Mockito.any())).thenReturn(new CreateCartResponse());
+        List<CreateCartRequest> carts = new ArrayList<>();
+        carts.add(cart);
+
+        CreateCartBatchRequest request = new CreateCartBatchRequest();
+        request.setCarts(carts);
+
+        List<Response<CreateCartResponse>> results = new ArrayList<>();
+        results.add(new Response<>(new CreateCartResponse()));
+        CreateCartBatchResponse response = new CreateCartBatchResponse();
+        response.setCarts(results);
+
+        Mockito.when(cartService.createCarts(Mockito.any())).thenReturn(response);
 
         MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
                 .post(url)
                 .content(mapper.writeValueAsString(request))
                 .contentType(MediaType.APPLICATION_JSON);
 
-        mockMvc.perform(builder).andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.data.carts.length()").value(1));
+    }
+
+    @Test
+    public void shouldSuccessWhenCreateCartAsync() throws Exception {
+        String url = "/api/cart/async";
+
+        CreateCartRequest request = mockCreateCartRequest();
+
+        CompletableFuture<CreateCartResponse> future = new CompletableFuture<>();
+        Mockito.when(cartService.createCartAsync(Mockito.any())).thenReturn(future);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(mapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        CreateCartResponse response = new CreateCartResponse();
+        response.setNet("100.0");
+        future.complete(response);
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.data.net").value("100.0"));
+    }
+
+    @Test
+    public void shouldExceptionWhenCreateCartAsyncWithProductNotFound() throws Exception {
+        String url = "/api/cart/async";
+
+        CreateCartRequest request = mockCreateCartRequest();
+
+        CompletableFuture<CreateCartResponse> future = new CompletableFuture<>();
+        future.completeExceptionally(new BadRequestException(ErrorType.PRODUCT_NOT_FOUND));
+        Mockito.when(cartService.createCartAsync(Mockito.any())).thenReturn(future);
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(mapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("4001"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].message").value("Product not found"));
+    }
+
+    @Test
+    public void shouldGatewayTimeoutWhenCreateCartAsyncIsNotPricedInTime() throws Exception {
+        String url = "/api/cart/async";
+
+        CreateCartRequest request = mockCreateCartRequest();
+
+        Mockito.when(cartService.createCartAsync(Mockito.any())).thenReturn(new CompletableFuture<>());
+
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders
+                .post(url)
+                .content(mapper.writeValueAsString(request))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // servlet container calls the timeout of the async request
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isGatewayTimeout())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].code").value("4005"));
+    }
+
+    private CreateCartRequest mockCreateCartRequest() {
+        CartProductRequest cartProductRequest = new CartProductRequest();
+        cartProductRequest.setProductId("1234");
+        cartProductRequest.setAmount(1);
+
+        List<CartProductRequest> cartProductRequests = new ArrayList<>();
+        cartProductRequests.add(cartProductRequest);
+
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(cartProductRequests);
+
+        return request;
     }
 }
@@ -0,0 +1,34 @@
+package com.sellsuki.homework.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void shouldParsePriceToMinorUnit() {
+        Assert.assertEquals(35000, Money.parseMinor("350"));
+        Assert.assertEquals(35050, Money.parseMinor("350.5"));
+        Assert.assertEquals(35051, Money.parseMinor("350.505"));
+    }
+
+    @Test
+    public void shouldFormatSameAsDouble() {
+        Assert.assertEquals("0.0", Money.ZERO.toString());
+        Assert.assertEquals("30.0", Money.ofMinor(3000).toString());
+        Assert.assertEquals("16.5", Money.ofMinor(1650).toString());
+        Assert.assertEquals("16.55", Money.ofMinor(1655).toString());
+        Assert.assertEquals("0.05", Money.ofMinor(5).toString());
+        Assert.assertEquals("-0.5", Money.ofMinor(-50).toString());
+        Assert.assertEquals("29999999970.0", Money.ofMinor(2999999997000L).toString());
+    }
+
+    @Test
+    public void shouldRoundPercentHalfUp() {
+        // 11% of 0.50 is 0.055
+        Assert.assertEquals(6, Money.percentOf(50, 11));
+        // 11% of 0.40 is 0.044
+        Assert.assertEquals(4, Money.percentOf(40, 11));
+        Assert.assertEquals(-6, Money.percentOf(-50, 11));
+    }
+}
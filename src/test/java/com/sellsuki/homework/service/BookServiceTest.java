@@ -1,42 +1,43 @@
 package com.sellsuki.homework.service;
 
+import com.sellsuki.homework.config.PricingMetrics;
 import com.sellsuki.homework.exceptions.InternalServerErrorException;
-import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
-import org.mockito.Matchers;
-import org.mockito.Mock;
-import org.mockito.Mockito;
-import org.mockito.runners.MockitoJUnitRunner;
-import org.springframework.http.HttpEntity;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.match.MockRestRequestMatchers;
+import org.springframework.test.web.client.response.MockRestResponseCreators;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Map;
-
-@RunWith(MockitoJUnitRunner.class)
 public class BookServiceTest {
 
-    @InjectMocks
-    private BookService bookService;
+    private BookService bookService = new BookService();
+
+    private PricingMetrics pricingMetrics = new PricingMetrics();
 
-    @Mock
-    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
 
     @Rule
     public final ExpectedException expectedException = ExpectedException.none();
 
     @Before
     public void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.createServer(restTemplate);
+
+        ReflectionTestUtils.setField(bookService, "restTemplate", restTemplate);
         ReflectionTestUtils.setField(bookService, "url", "http://localhost:8080");
+        ReflectionTestUtils.setField(bookService, "pricingMetrics", pricingMetrics);
     }
 
     @Test
@@ -44,12 +45,20 @@ public class BookServiceTest {
         expectedException.expect(InternalServerErrorException.class);
         expectedException.expectMessage("Cannot get book list from api");
 
-        Mockito.doThrow(Exception.class).when(restTemplate).exchange(
-                Mockito.anyString(),
-                Matchers.eq(HttpMethod.GET),
-                Matchers.<HttpEntity<?>>any(),
-                Matchers.eq(String.class)
-        );
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andExpect(MockRestRequestMatchers.method(HttpMethod.GET))
+                .andRespond(MockRestResponseCreators.withServerError());
+
+        bookService.getBookListFromAPI();
+    }
+
+    @Test
+    public void shouldExceptionWhenBookListIsNotJson() throws Exception {
+        expectedException.expect(InternalServerErrorException.class);
+        expectedException.expectMessage("Cannot get book list from api");
+
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess("<html></html>", MediaType.TEXT_HTML));
 
         bookService.getBookListFromAPI();
     }
@@ -57,21 +66,124 @@ public class BookServiceTest {
     @Test
     public void shouldGetBookListSuccess() throws Exception {
         String responseBody = "{\"books\":[{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\",\"id\":\"1234\"}]}";
-        Mockito.when(restTemplate.exchange(
-                Mockito.anyString(),
-                Matchers.eq(HttpMethod.GET),
-                Matchers.<HttpEntity<?>>any(),
-                Matchers.eq(String.class)
-        )).thenReturn(new ResponseEntity<String>(responseBody, HttpStatus.OK));
-
-        Map<String, Book> bookMap = bookService.getBookListFromAPI();
-
-        Book book = bookMap.get("1234");
-        Assert.assertEquals(1, bookMap.size());
-        Assert.assertNotNull(book);
-        Assert.assertEquals("1234", book.getId());
-        Assert.assertEquals("350", book.getPrice());
-        Assert.assertEquals("Harry Potter", book.getTitle());
-        Assert.assertEquals("cover", book.getCover());
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andExpect(MockRestRequestMatchers.method(HttpMethod.GET))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+
+        CatalogIndex catalogIndex = bookService.getBookListFromAPI();
+
+        int slot = catalogIndex.slotOf("1234");
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertTrue(slot >= 0);
+        Assert.assertEquals("1234", catalogIndex.getId(slot));
+        Assert.assertEquals("350", catalogIndex.getPrice(slot));
+        Assert.assertEquals(35000, catalogIndex.getPriceMinor(slot));
+        Assert.assertEquals("Harry Potter", catalogIndex.getTitle(slot));
+        Assert.assertEquals("cover", catalogIndex.getCover(slot));
+    }
+
+    @Test
+    public void shouldGetBookListSuccessWhenResponseHasOtherFields() throws Exception {
+        String responseBody = "{\"total\":1,\"books\":[{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\","
+                + "\"id\":\"1234\",\"author\":{\"name\":\"J.K. Rowling\"}}],\"next\":null}";
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+
+        CatalogIndex catalogIndex = bookService.getBookListFromAPI();
+
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertEquals("Harry Potter", catalogIndex.getTitle(catalogIndex.slotOf("1234")));
+    }
+
+    @Test
+    public void shouldGetAllBooksFromBookListResponse() throws Exception {
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(
+                        new ClassPathResource("response/books.json"), MediaType.APPLICATION_JSON));
+
+        CatalogIndex catalogIndex = bookService.getBookListFromAPI();
+
+        Assert.assertEquals(8, catalogIndex.size());
+        Assert.assertEquals("Harry (I)", catalogIndex.getTitle(catalogIndex.slotOf("1")));
+        Assert.assertEquals("100", catalogIndex.getPrice(catalogIndex.slotOf("1")));
+        Assert.assertEquals(-1, catalogIndex.slotOf("1234"));
+    }
+
+    @Test
+    public void shouldSkipBookWhenPriceIsWrongOrIdIsMissing() throws Exception {
+        String responseBody = "{\"books\":["
+                + "{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\",\"id\":\"1234\"},"
+                + "{\"cover\":\"cover\",\"price\":\"free\",\"title\":\"Wrong Price\",\"id\":\"1\"},"
+                + "{\"cover\":\"cover\",\"title\":\"No Price\",\"id\":\"2\"},"
+                + "{\"cover\":\"cover\",\"price\":\"100\",\"title\":\"No Id\"}]}";
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+
+        CatalogIndex catalogIndex = bookService.getBookListFromAPI();
+
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertEquals(3, catalogIndex.getSkippedCount());
+        Assert.assertEquals("Harry Potter", catalogIndex.getTitle(catalogIndex.slotOf("1234")));
+        Assert.assertEquals(-1, catalogIndex.slotOf("1"));
+        Assert.assertEquals(-1, catalogIndex.slotOf("2"));
+    }
+
+    @Test
+    public void shouldKeepFirstBookWhenSameIdInBookList() throws Exception {
+        String responseBody = "{\"books\":["
+                + "{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\",\"id\":\"1234\"},"
+                + "{\"cover\":\"cover\",\"price\":\"100\",\"title\":\"Other Book\",\"id\":\"1234\"}]}";
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+
+        CatalogIndex catalogIndex = bookService.getBookListFromAPI();
+
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertEquals(1, catalogIndex.getSkippedCount());
+        Assert.assertEquals("Harry Potter", catalogIndex.getTitle(catalogIndex.slotOf("1234")));
+        Assert.assertEquals(35000, catalogIndex.getPriceMinor(catalogIndex.slotOf("1234")));
+    }
+
+    @Test
+    public void shouldKeepVersionWhenBookListHasSameBooks() throws Exception {
+        String responseBody = "{\"books\":[{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\",\"id\":\"1234\"}]}";
+        String changedBody = "{\"books\":[{\"cover\":\"cover\",\"price\":\"300\",\"title\":\"Harry Potter\",\"id\":\"1234\"}]}";
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON));
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(changedBody, MediaType.APPLICATION_JSON));
+
+        CatalogIndex first = bookService.getBookListFromAPI();
+        CatalogIndex same = bookService.getBookListFromAPI();
+        CatalogIndex changed = bookService.getBookListFromAPI();
+
+        Assert.assertSame(first, same);
+        Assert.assertNotEquals(first.getVersion(), changed.getVersion());
+        Assert.assertEquals(30000, changed.getPriceMinor(changed.slotOf("1234")));
+    }
+
+    @Test
+    public void shouldKeepBookListWhenBookListIsNotModified() throws Exception {
+        String responseBody = "{\"books\":[{\"cover\":\"cover\",\"price\":\"350\",\"title\":\"Harry Potter\",\"id\":\"1234\"}]}";
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setETag("\"v1\"");
+
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andRespond(MockRestResponseCreators.withSuccess(responseBody, MediaType.APPLICATION_JSON)
+                        .headers(responseHeaders));
+        server.expect(MockRestRequestMatchers.requestTo("http://localhost:8080"))
+                .andExpect(MockRestRequestMatchers.header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(MockRestResponseCreators.withStatus(HttpStatus.NOT_MODIFIED));
+
+        CatalogIndex first = bookService.getBookListFromAPI();
+        CatalogIndex second = bookService.getBookListFromAPI();
+
+        server.verify();
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, bookService.getModifiedCount());
+        Assert.assertEquals(1, bookService.getNotModifiedCount());
+        Assert.assertEquals(responseBody.length(), bookService.getBytesSaved());
     }
 }
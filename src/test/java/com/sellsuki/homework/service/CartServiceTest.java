@@ -1,12 +1,20 @@
 package com.sellsuki.homework.service;
 
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.dto.CartProductRequestDTO;
 import com.sellsuki.homework.dto.CartProductResponseDTO;
 import com.sellsuki.homework.exceptions.BadRequestException;
 import com.sellsuki.homework.exceptions.InternalServerErrorException;
 import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.PromotionConfig;
 import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.request.CreateCartBatchRequest;
 import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartBatchResponse;
 import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.types.ErrorType;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -16,13 +24,17 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CartServiceTest {
@@ -31,14 +43,41 @@ public class CartServiceTest {
     private CartService cartService;
 
     @Mock
-    private BookService bookService;
+    private CatalogService catalogService;
+
+    @Spy
+    private PromotionService promotionService = new PromotionService();
+
+    @Spy
+    private QuoteService quoteService = new QuoteService();
+
+    @Spy
+    private PricingMetrics pricingMetrics = new PricingMetrics();
+
+    private ForkJoinPool pricingPool = new ForkJoinPool(2);
 
     @Rule
     public final ExpectedException expectedException = ExpectedException.none();
 
     @Before
-    public void setUp() {
-        ReflectionTestUtils.setField(cartService, "promotionBookId", "1,2,3,4,5,6,7");
+    public void setUp() throws Exception {
+        ReflectionTestUtils.setField(promotionService, "promotionBookId", "1,2,3,4,5,6,7");
+        ReflectionTestUtils.setField(promotionService, "promotionTiers", "0,0,10,11,12,13,14,15");
+        ReflectionTestUtils.setField(promotionService, "bundleMemoSize", 100);
+        ReflectionTestUtils.setField(promotionService, "bundleMaxStates", 100000);
+        ReflectionTestUtils.setField(promotionService, "pricingMetrics", pricingMetrics);
+        ReflectionTestUtils.setField(cartService, "batchMaxSize", 2);
+        ReflectionTestUtils.setField(cartService, "parallelThreshold", 64);
+        ReflectionTestUtils.setField(cartService, "pricingPool", pricingPool);
+        ReflectionTestUtils.setField(quoteService, "maxSize", 100);
+        ReflectionTestUtils.setField(quoteService, "segments", 4);
+        quoteService.init();
+        promotionService.init();
+    }
+
+    @After
+    public void tearDown() {
+        pricingPool.shutdown();
     }
 
     @Test
@@ -47,7 +86,7 @@ public class CartServiceTest {
 
         CreateCartRequest request = new CreateCartRequest();
 
-        Mockito.doThrow(InternalServerErrorException.class).when(bookService).getBookListFromAPI();
+        Mockito.doThrow(InternalServerErrorException.class).when(catalogService).getCatalogIndex();
 
         cartService.createCart(request);
     }
@@ -63,13 +102,34 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         cartService.createCart(request);
     }
 
+    @Test
+    public void shouldNotFillStackTraceWhenProductNotFound() throws Exception {
+        List<CartProductRequest> cartProductRequests = new ArrayList<>();
+        cartProductRequests.add(mockCartProductRequest("1234", "1"));
+
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(cartProductRequests);
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        try {
+            cartService.createCart(request);
+            Assert.fail();
+        } catch (BadRequestException ex) {
+            Assert.assertEquals(ErrorType.PRODUCT_NOT_FOUND, ex.getErrorType());
+            Assert.assertEquals(0, ex.getStackTrace().length);
+        }
+    }
+
     @Test
     public void shouldNotDiscountWhenCreateCartWithNonPromotionBook() throws Exception {
         List<CartProductRequest> cartProductRequests = new ArrayList<>();
@@ -78,9 +138,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -90,7 +150,7 @@ public class CartServiceTest {
         Assert.assertEquals(1, response.getProducts().size());
         Assert.assertEquals("8", response.getProducts().get(0).getProductId());
         Assert.assertEquals("Conan", response.getProducts().get(0).getTitle());
-        Assert.assertEquals("1", response.getProducts().get(0).getAmount());
+        Assert.assertEquals(1, response.getProducts().get(0).getAmount());
         Assert.assertEquals("800", response.getProducts().get(0).getPrice());
         Assert.assertEquals("800.0", response.getProducts().get(0).getTotalPrice());
     }
@@ -103,9 +163,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -117,7 +177,7 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductResponseDTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductResponseDTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProductResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProductResponseDTO.getAmount());
         Assert.assertEquals("100", cartProductResponseDTO.getPrice());
         Assert.assertEquals("100.0", cartProductResponseDTO.getTotalPrice());
     }
@@ -131,9 +191,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -145,14 +205,14 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
     }
@@ -167,9 +227,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -181,21 +241,21 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
     }
@@ -211,9 +271,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -225,28 +285,28 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
     }
@@ -263,9 +323,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -277,35 +337,35 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
     }
@@ -323,9 +383,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -337,42 +397,42 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry6DTO = response.getProducts().get(5);
         Assert.assertEquals("6", cartProductHarry6DTO.getProductId());
         Assert.assertEquals("Harry (VI)", cartProductHarry6DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry6DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry6DTO.getAmount());
         Assert.assertEquals("600", cartProductHarry6DTO.getPrice());
         Assert.assertEquals("600.0", cartProductHarry6DTO.getTotalPrice());
     }
@@ -391,9 +451,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -405,49 +465,49 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry6DTO = response.getProducts().get(5);
         Assert.assertEquals("6", cartProductHarry6DTO.getProductId());
         Assert.assertEquals("Harry (VI)", cartProductHarry6DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry6DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry6DTO.getAmount());
         Assert.assertEquals("600", cartProductHarry6DTO.getPrice());
         Assert.assertEquals("600.0", cartProductHarry6DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry7DTO = response.getProducts().get(6);
         Assert.assertEquals("7", cartProductHarry7DTO.getProductId());
         Assert.assertEquals("Harry (VII)", cartProductHarry7DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry7DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry7DTO.getAmount());
         Assert.assertEquals("700", cartProductHarry7DTO.getPrice());
         Assert.assertEquals("700.0", cartProductHarry7DTO.getTotalPrice());
     }
@@ -461,9 +521,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -475,14 +535,14 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductResponseDTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductResponseDTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProductResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProductResponseDTO.getAmount());
         Assert.assertEquals("100", cartProductResponseDTO.getPrice());
         Assert.assertEquals("100.0", cartProductResponseDTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(1);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -497,9 +557,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -511,21 +571,21 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(2);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -541,9 +601,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -555,28 +615,28 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(3);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -593,9 +653,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -607,35 +667,35 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(4);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -653,9 +713,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -667,42 +727,42 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(5);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -721,9 +781,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -735,49 +795,49 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry6DTO = response.getProducts().get(5);
         Assert.assertEquals("6", cartProductHarry6DTO.getProductId());
         Assert.assertEquals("Harry (VI)", cartProductHarry6DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry6DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry6DTO.getAmount());
         Assert.assertEquals("600", cartProductHarry6DTO.getPrice());
         Assert.assertEquals("600.0", cartProductHarry6DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(6);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -797,9 +857,9 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
@@ -811,56 +871,56 @@ public class CartServiceTest {
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("100.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("200.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry4DTO = response.getProducts().get(3);
         Assert.assertEquals("4", cartProductHarry4DTO.getProductId());
         Assert.assertEquals("Harry (IV)", cartProductHarry4DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry4DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry4DTO.getAmount());
         Assert.assertEquals("400", cartProductHarry4DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry4DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry5DTO = response.getProducts().get(4);
         Assert.assertEquals("5", cartProductHarry5DTO.getProductId());
         Assert.assertEquals("Harry (V)", cartProductHarry5DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry5DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry5DTO.getAmount());
         Assert.assertEquals("500", cartProductHarry5DTO.getPrice());
         Assert.assertEquals("500.0", cartProductHarry5DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry6DTO = response.getProducts().get(5);
         Assert.assertEquals("6", cartProductHarry6DTO.getProductId());
         Assert.assertEquals("Harry (VI)", cartProductHarry6DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry6DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry6DTO.getAmount());
         Assert.assertEquals("600", cartProductHarry6DTO.getPrice());
         Assert.assertEquals("600.0", cartProductHarry6DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry7DTO = response.getProducts().get(6);
         Assert.assertEquals("7", cartProductHarry7DTO.getProductId());
         Assert.assertEquals("Harry (VII)", cartProductHarry7DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry7DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry7DTO.getAmount());
         Assert.assertEquals("700", cartProductHarry7DTO.getPrice());
         Assert.assertEquals("700.0", cartProductHarry7DTO.getTotalPrice());
 
         CartProductResponseDTO cartProduct8ResponseDTO = response.getProducts().get(7);
         Assert.assertEquals("8", cartProduct8ResponseDTO.getProductId());
         Assert.assertEquals("Conan", cartProduct8ResponseDTO.getTitle());
-        Assert.assertEquals("1", cartProduct8ResponseDTO.getAmount());
+        Assert.assertEquals(1, cartProduct8ResponseDTO.getAmount());
         Assert.assertEquals("800", cartProduct8ResponseDTO.getPrice());
         Assert.assertEquals("800.0", cartProduct8ResponseDTO.getTotalPrice());
     }
@@ -875,48 +935,266 @@ public class CartServiceTest {
         CreateCartRequest request = new CreateCartRequest();
         request.setProducts(cartProductRequests);
 
-        Map<String, Book> bookMap = mockBookListFromAPI();
+        CatalogIndex catalogIndex = mockCatalogIndex();
 
-        Mockito.when(bookService.getBookListFromAPI()).thenReturn(bookMap);
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
 
         CreateCartResponse response = cartService.createCart(request);
 
+        // {1, 2} + {1, 2} + {1, 3} + {1} gives more discount than round by round (96.0)
         Assert.assertNotNull(response.getProducts());
-        Assert.assertEquals("96.0", response.getDiscount());
-        Assert.assertEquals("1004.0", response.getNet());
+        Assert.assertEquals("100.0", response.getDiscount());
+        Assert.assertEquals("1000.0", response.getNet());
         Assert.assertEquals(3, response.getProducts().size());
 
         CartProductResponseDTO cartProductHarry1DTO = response.getProducts().get(0);
         Assert.assertEquals("1", cartProductHarry1DTO.getProductId());
         Assert.assertEquals("Harry (I)", cartProductHarry1DTO.getTitle());
-        Assert.assertEquals("4", cartProductHarry1DTO.getAmount());
+        Assert.assertEquals(4, cartProductHarry1DTO.getAmount());
         Assert.assertEquals("100", cartProductHarry1DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry1DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry2DTO = response.getProducts().get(1);
         Assert.assertEquals("2", cartProductHarry2DTO.getProductId());
         Assert.assertEquals("Harry (II)", cartProductHarry2DTO.getTitle());
-        Assert.assertEquals("2", cartProductHarry2DTO.getAmount());
+        Assert.assertEquals(2, cartProductHarry2DTO.getAmount());
         Assert.assertEquals("200", cartProductHarry2DTO.getPrice());
         Assert.assertEquals("400.0", cartProductHarry2DTO.getTotalPrice());
 
         CartProductResponseDTO cartProductHarry3DTO = response.getProducts().get(2);
         Assert.assertEquals("3", cartProductHarry3DTO.getProductId());
         Assert.assertEquals("Harry (III)", cartProductHarry3DTO.getTitle());
-        Assert.assertEquals("1", cartProductHarry3DTO.getAmount());
+        Assert.assertEquals(1, cartProductHarry3DTO.getAmount());
         Assert.assertEquals("300", cartProductHarry3DTO.getPrice());
         Assert.assertEquals("300.0", cartProductHarry3DTO.getTotalPrice());
     }
 
+    @Test
+    public void shouldRecordEveryStageWhenCreateCart() throws Exception {
+        List<CartProductRequest> cartProductRequests = new ArrayList<>();
+        cartProductRequests.add(mockCartProductRequest("1", "4"));
+        cartProductRequests.add(mockCartProductRequest("2", "2"));
+        cartProductRequests.add(mockCartProductRequest("8", "1"));
+
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(cartProductRequests);
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        cartService.createCart(request);
+        cartService.createCart(request);
+
+        Assert.assertEquals(2, pricingMetrics.getCartLines().snapshot().getCount());
+        Assert.assertEquals(3, pricingMetrics.getCartLines().snapshot().getMax());
+        Assert.assertEquals(2, pricingMetrics.getCartTime().snapshot().getCount());
+        Assert.assertEquals(2, pricingMetrics.getResponseBuildTime().snapshot().getCount());
+        // second cart is from quote cache, it is not priced again
+        Assert.assertEquals(1, pricingMetrics.getPricingTime().snapshot().getCount());
+        Assert.assertEquals(4, pricingMetrics.getPromotionRounds().snapshot().getMax());
+    }
+
+    @Test
+    public void shouldPriceEveryCartWithOneCatalogWhenCreateCarts() throws Exception {
+        CreateCartRequest found = new CreateCartRequest();
+        found.setProducts(Arrays.asList(mockCartProductRequest("1", "1"), mockCartProductRequest("2", "1")));
+        CreateCartRequest notFound = new CreateCartRequest();
+        notFound.setProducts(Arrays.asList(mockCartProductRequest("1234", "1")));
+
+        CreateCartBatchRequest request = new CreateCartBatchRequest();
+        request.setCarts(Arrays.asList(notFound, found));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        CreateCartBatchResponse response = cartService.createCarts(request);
+
+        Mockito.verify(catalogService, Mockito.times(1)).getCatalogIndex();
+        Assert.assertEquals(2, response.getCarts().size());
+        Assert.assertNull(response.getCarts().get(0).getData());
+        Assert.assertEquals("4001", response.getCarts().get(0).getErrors().get(0).getCode());
+        Assert.assertNull(response.getCarts().get(1).getErrors());
+        Assert.assertEquals("30.0", response.getCarts().get(1).getData().getDiscount());
+        Assert.assertEquals("270.0", response.getCarts().get(1).getData().getNet());
+    }
+
+    @Test
+    public void shouldKeepOrderOfCartsWhenBatchIsPricedInParallel() throws Exception {
+        List<CreateCartRequest> carts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CreateCartRequest cart = new CreateCartRequest();
+            cart.setProducts(Arrays.asList(mockCartProductRequest(String.valueOf(i % 9 + 1), String.valueOf(i + 1))));
+            carts.add(cart);
+        }
+
+        CreateCartBatchRequest request = new CreateCartBatchRequest();
+        request.setCarts(carts);
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+        ReflectionTestUtils.setField(cartService, "batchMaxSize", 100);
+        ReflectionTestUtils.setField(cartService, "parallelThreshold", 8);
+
+        CreateCartBatchResponse response = cartService.createCarts(request);
+
+        Assert.assertEquals(100, response.getCarts().size());
+        for (int i = 0; i < 100; i++) {
+            if (i % 9 + 1 == 9) {
+                // product 9 is not in the catalog
+                Assert.assertEquals("4001", response.getCarts().get(i).getErrors().get(0).getCode());
+            } else {
+                Assert.assertEquals(i + 1, response.getCarts().get(i).getData().getProducts().get(0).getAmount());
+            }
+        }
+    }
+
+    @Test
+    public void shouldReuseQuoteWhenCreateSameCartInOtherOrder() throws Exception {
+        CreateCartRequest first = new CreateCartRequest();
+        first.setProducts(Arrays.asList(mockCartProductRequest("1", "2"), mockCartProductRequest("2", "1")));
+        CreateCartRequest second = new CreateCartRequest();
+        second.setProducts(Arrays.asList(mockCartProductRequest("2", "1"), mockCartProductRequest("1", "2")));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        CreateCartResponse firstResponse = cartService.createCart(first);
+        CreateCartResponse secondResponse = cartService.createCart(second);
+
+        Mockito.verify(promotionService, Mockito.times(1)).calculateDiscount(
+                Mockito.anyListOf(CartProductRequestDTO.class), Mockito.any(PromotionConfig.class), Mockito.any(PricingMetrics.class));
+        Assert.assertEquals(1, quoteService.getHitCount());
+        Assert.assertEquals(firstResponse.getDiscount(), secondResponse.getDiscount());
+        Assert.assertEquals(firstResponse.getNet(), secondResponse.getNet());
+        Assert.assertEquals(2, secondResponse.getProducts().size());
+        Assert.assertEquals("2", secondResponse.getProducts().get(0).getProductId());
+    }
+
+    @Test
+    public void shouldPriceEveryTimeWithoutQuoteCacheWhenCreateCartWithoutCache() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1", "2"), mockCartProductRequest("2", "1")));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        CreateCartResponse firstResponse = cartService.createCartWithoutCache(request, catalogIndex);
+        CreateCartResponse secondResponse = cartService.createCartWithoutCache(request, catalogIndex);
+
+        Mockito.verify(promotionService, Mockito.times(2)).calculateDiscount(
+                Mockito.anyListOf(CartProductRequestDTO.class), Mockito.any(PromotionConfig.class), Mockito.any(PricingMetrics.class));
+        Mockito.verify(quoteService, Mockito.never()).getQuote(Mockito.anyString(), Mockito.any(CatalogIndex.class));
+        Assert.assertEquals(0, pricingMetrics.getPromotionRounds().snapshot().getCount());
+        Assert.assertEquals(0, pricingMetrics.getCartTime().snapshot().getCount());
+        Assert.assertEquals(firstResponse.getNet(), secondResponse.getNet());
+        Assert.assertEquals("30.0", firstResponse.getDiscount());
+    }
+
+    @Test
+    public void shouldCountEveryLineAsTitleWhenSameProductInManyLines() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1", "1"), mockCartProductRequest("1", "1")));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        CreateCartResponse response = cartService.createCart(request);
+
+        // same as the round by round calculation: 2 lines in 1 round, 10% of 200
+        Assert.assertEquals("20.0", response.getDiscount());
+        Assert.assertEquals("180.0", response.getNet());
+    }
+
+    @Test
+    public void shouldExceptionWhenCreateCartsWithTooManyCarts() throws Exception {
+        expectedException.expect(BadRequestException.class);
+        expectedException.expectMessage("Too many carts in batch");
+
+        CreateCartRequest cart = new CreateCartRequest();
+        cart.setProducts(Arrays.asList(mockCartProductRequest("1", "1")));
+
+        CreateCartBatchRequest request = new CreateCartBatchRequest();
+        request.setCarts(Arrays.asList(cart, cart, cart));
+
+        cartService.createCarts(request);
+    }
+
+    @Test
+    public void shouldPriceOnCallingThreadWhenCreateCartAsyncWithLoadedCatalog() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1", "1"), mockCartProductRequest("2", "1")));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndexAsync()).thenReturn(CompletableFuture.completedFuture(catalogIndex));
+
+        CompletableFuture<CreateCartResponse> future = cartService.createCartAsync(request);
+
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals("30.0", future.get().getDiscount());
+        Assert.assertEquals("270.0", future.get().getNet());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldPriceAfterCatalogIsLoadedWhenCreateCartAsync() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1", "1"), mockCartProductRequest("2", "1")));
+
+        CompletableFuture<CatalogIndex> catalogIndex = new CompletableFuture<>();
+        Mockito.when(catalogService.getCatalogIndexAsync()).thenReturn(catalogIndex);
+
+        CompletableFuture<CreateCartResponse> future = cartService.createCartAsync(request);
+
+        Assert.assertFalse(future.isDone());
+        catalogIndex.complete(mockCatalogIndex());
+        Assert.assertEquals("270.0", future.get().getNet());
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyWhenCreateCartAsyncWithProductNotFound() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1234", "1")));
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndexAsync()).thenReturn(CompletableFuture.completedFuture(catalogIndex));
+
+        try {
+            cartService.createCartAsync(request).get();
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof BadRequestException);
+        }
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyWhenCreateCartAsyncWithCannotGetBookList() throws Exception {
+        CreateCartRequest request = new CreateCartRequest();
+        request.setProducts(Arrays.asList(mockCartProductRequest("1", "1")));
+
+        CompletableFuture<CatalogIndex> catalogIndex = new CompletableFuture<>();
+        catalogIndex.completeExceptionally(new CompletionException(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST)));
+        Mockito.when(catalogService.getCatalogIndexAsync()).thenReturn(catalogIndex);
+
+        try {
+            cartService.createCartAsync(request).get();
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof InternalServerErrorException);
+        }
+    }
+
     private CartProductRequest mockCartProductRequest(String id, String amount) {
         CartProductRequest cartProductRequest = new CartProductRequest();
         cartProductRequest.setProductId(id);
-        cartProductRequest.setAmount(amount);
+        cartProductRequest.setAmount(Integer.valueOf(amount));
 
         return cartProductRequest;
     }
 
-    private Map<String, Book> mockBookListFromAPI() {
+    private CatalogIndex mockCatalogIndex() {
         List<Book> books = new ArrayList<>();
         books.add(mockBook("1", "Harry (I)", "100"));
         books.add(mockBook("2", "Harry (II)", "200"));
@@ -927,11 +1205,10 @@ public class CartServiceTest {
         books.add(mockBook("7", "Harry (VII)", "700"));
         books.add(mockBook("8", "Conan", "800"));
 
-        return books
-                .stream()
-                .collect(
-                        Collectors.toMap(Book::getId, book -> book)
-                );
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        books.forEach(builder::add);
+
+        return builder.build().withPromotion(promotionService.getPromotionConfig());
     }
 
     private Book mockBook(String id, String title, String price) {
@@ -0,0 +1,386 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.exceptions.BadRequestException;
+import com.sellsuki.homework.exceptions.NotFoundException;
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.request.CartProductRequest;
+import com.sellsuki.homework.response.CartSessionResponse;
+import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.types.FsyncPolicy;
+import com.sellsuki.homework.utils.BundleOptimizer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CartSessionServiceTest {
+
+    @InjectMocks
+    private CartSessionService cartSessionService;
+
+    @Mock
+    private CatalogService catalogService;
+
+    private PromotionService promotionService = new PromotionService();
+
+    @Rule
+    public final ExpectedException expectedException = ExpectedException.none();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        ReflectionTestUtils.setField(promotionService, "promotionBookId", "1,2,3,4,5,6,7");
+        ReflectionTestUtils.setField(promotionService, "promotionTiers", "0,0,10,11,12,13,14,15");
+        ReflectionTestUtils.setField(promotionService, "bundleMemoSize", 100);
+        ReflectionTestUtils.setField(promotionService, "bundleMaxStates", 100000);
+        ReflectionTestUtils.setField(cartSessionService, "ttl", 60000L);
+        promotionService.init();
+
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+    }
+
+    @Test
+    public void shouldEmptyCartWhenCreateCart() throws Exception {
+        CartSessionResponse response = cartSessionService.createCart();
+
+        Assert.assertNotNull(response.getCartId());
+        Assert.assertEquals(0, response.getCart().getProducts().size());
+        Assert.assertEquals("0.0", response.getCart().getDiscount());
+        Assert.assertEquals("0.0", response.getCart().getNet());
+        Assert.assertEquals(1, cartSessionService.getSize());
+    }
+
+    @Test
+    public void shouldRepriceWhenAddLine() throws Exception {
+        String cartId = cartSessionService.createCart().getCartId();
+
+        cartSessionService.addLine(cartId, mockCartProductRequest("1", "1"));
+        CartSessionResponse response = cartSessionService.addLine(cartId, mockCartProductRequest("2", "1"));
+
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("270.0", response.getCart().getNet());
+
+        response = cartSessionService.addLine(cartId, mockCartProductRequest("8", "1"));
+
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("1070.0", response.getCart().getNet());
+
+        // same book is added to the same line
+        response = cartSessionService.addLine(cartId, mockCartProductRequest("1", "1"));
+
+        Assert.assertEquals(cartId, response.getCartId());
+        Assert.assertEquals(3, response.getCart().getProducts().size());
+        Assert.assertEquals("1", response.getCart().getProducts().get(0).getProductId());
+        Assert.assertEquals("Harry (I)", response.getCart().getProducts().get(0).getTitle());
+        Assert.assertEquals(2, response.getCart().getProducts().get(0).getAmount());
+        Assert.assertEquals("100", response.getCart().getProducts().get(0).getPrice());
+        Assert.assertEquals("200.0", response.getCart().getProducts().get(0).getTotalPrice());
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("1170.0", response.getCart().getNet());
+    }
+
+    @Test
+    public void shouldNotPricePromotionGroupAgainWhenAddLineOfOtherBook() throws Exception {
+        BundleOptimizer bundleOptimizer = promotionService.getPromotionConfig().getGroups().get(0).getBundleOptimizer();
+        String cartId = cartSessionService.createCart().getCartId();
+        cartSessionService.addLine(cartId, mockCartProductRequest("1", "1"));
+        cartSessionService.addLine(cartId, mockCartProductRequest("2", "1"));
+        long pricedCount = bundleOptimizer.getFastPathCount() + bundleOptimizer.getDpCount();
+
+        cartSessionService.addLine(cartId, mockCartProductRequest("8", "1"));
+        CartSessionResponse response = cartSessionService.getCart(cartId);
+
+        Assert.assertEquals(pricedCount, bundleOptimizer.getFastPathCount() + bundleOptimizer.getDpCount());
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("1070.0", response.getCart().getNet());
+    }
+
+    @Test
+    public void shouldRepriceWhenRemoveLine() throws Exception {
+        String cartId = cartSessionService.createCart().getCartId();
+        cartSessionService.addLine(cartId, mockCartProductRequest("1", "2"));
+        cartSessionService.addLine(cartId, mockCartProductRequest("2", "1"));
+        cartSessionService.addLine(cartId, mockCartProductRequest("3", "1"));
+
+        // {1, 2} + {1, 3} is better than {1, 2, 3} + {1}
+        CartSessionResponse response = cartSessionService.getCart(cartId);
+
+        Assert.assertEquals("70.0", response.getCart().getDiscount());
+        Assert.assertEquals("630.0", response.getCart().getNet());
+
+        response = cartSessionService.removeLine(cartId, "3");
+
+        Assert.assertEquals(2, response.getCart().getProducts().size());
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("370.0", response.getCart().getNet());
+    }
+
+    @Test
+    public void shouldExceptionWhenAddLineWithProductNotFound() throws Exception {
+        expectedException.expect(BadRequestException.class);
+        expectedException.expectMessage("Product not found");
+
+        String cartId = cartSessionService.createCart().getCartId();
+
+        cartSessionService.addLine(cartId, mockCartProductRequest("1234", "1"));
+    }
+
+    @Test
+    public void shouldExceptionWhenAmountOfLineIsTooLarge() throws Exception {
+        String cartId = cartSessionService.createCart().getCartId();
+        cartSessionService.addLine(cartId, mockCartProductRequest("1", "999999999"));
+
+        try {
+            cartSessionService.addLine(cartId, mockCartProductRequest("1", "1"));
+            Assert.fail();
+        } catch (BadRequestException ex) {
+            Assert.assertEquals(ErrorType.AMOUNT_TOO_LARGE, ex.getErrorType());
+        }
+
+        CartSessionResponse response = cartSessionService.getCart(cartId);
+        Assert.assertEquals(999999999, response.getCart().getProducts().get(0).getAmount());
+    }
+
+    @Test
+    public void shouldExceptionWhenRemoveLineNotInCart() throws Exception {
+        expectedException.expect(BadRequestException.class);
+        expectedException.expectMessage("Product not found");
+
+        String cartId = cartSessionService.createCart().getCartId();
+
+        cartSessionService.removeLine(cartId, "1");
+    }
+
+    @Test
+    public void shouldExceptionWhenGetCartNotFound() throws Exception {
+        expectedException.expect(NotFoundException.class);
+        expectedException.expectMessage("Cart not found");
+
+        cartSessionService.getCart("1234");
+    }
+
+    @Test
+    public void shouldExceptionWhenGetExpiredCart() throws Exception {
+        expectedException.expect(NotFoundException.class);
+        expectedException.expectMessage("Cart not found");
+
+        String cartId = cartSessionService.createCart().getCartId();
+        ReflectionTestUtils.setField(cartSessionService, "ttl", 0L);
+
+        cartSessionService.getCart(cartId);
+    }
+
+    @Test
+    public void shouldRemoveExpiredCarts() throws Exception {
+        cartSessionService.createCart();
+        cartSessionService.removeExpiredCarts();
+
+        Assert.assertEquals(1, cartSessionService.getSize());
+
+        ReflectionTestUtils.setField(cartSessionService, "ttl", 0L);
+        cartSessionService.removeExpiredCarts();
+
+        Assert.assertEquals(0, cartSessionService.getSize());
+    }
+
+    @Test
+    public void shouldRepriceWhenPromotionRulesChanged() throws Exception {
+        String cartId = cartSessionService.createCart().getCartId();
+        cartSessionService.addLine(cartId, mockCartProductRequest("1", "1"));
+        cartSessionService.addLine(cartId, mockCartProductRequest("2", "1"));
+
+        promotionService.updatePromotionBookId("2,8");
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        CartSessionResponse response = cartSessionService.addLine(cartId, mockCartProductRequest("8", "1"));
+
+        // 1 is not promotion book anymore, {2, 8} is 10% of 1000
+        Assert.assertEquals(3, response.getCart().getProducts().size());
+        Assert.assertEquals("100.0", response.getCart().getDiscount());
+        Assert.assertEquals("1000.0", response.getCart().getNet());
+    }
+
+    @Test
+    public void shouldRestoreCartsFromJournalWhenRestart() throws Exception {
+        File dir = temporaryFolder.newFolder("journal");
+
+        CartSessionService before = newCartSessionService(dir);
+        String removedCartId = before.createCart().getCartId();
+        before.addLine(removedCartId, mockCartProductRequest("1", "1"));
+        ReflectionTestUtils.setField(before, "ttl", 0L);
+        before.removeExpiredCarts();
+        ReflectionTestUtils.setField(before, "ttl", 60000L);
+
+        String cartId = before.createCart().getCartId();
+        before.addLine(cartId, mockCartProductRequest("1", "1"));
+        before.addLine(cartId, mockCartProductRequest("8", "1"));
+        before.addLine(cartId, mockCartProductRequest("2", "1"));
+        before.addLine(cartId, mockCartProductRequest("1", "1"));
+        before.removeLine(cartId, "8");
+        String newCartId = before.createCart().getCartId();
+        before.addLine(newCartId, mockCartProductRequest("3", "2"));
+        before.close();
+
+        CartSessionService after = newCartSessionService(dir);
+        CartSessionResponse response = after.getCart(cartId);
+
+        Assert.assertEquals(2, after.getSize());
+        Assert.assertEquals(2, response.getCart().getProducts().size());
+        Assert.assertEquals("1", response.getCart().getProducts().get(0).getProductId());
+        Assert.assertEquals(2, response.getCart().getProducts().get(0).getAmount());
+        Assert.assertEquals("2", response.getCart().getProducts().get(1).getProductId());
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("370.0", response.getCart().getNet());
+        Assert.assertEquals("600.0", after.getCart(newCartId).getCart().getNet());
+        after.close();
+
+        expectedException.expect(NotFoundException.class);
+        after.getCart(removedCartId);
+    }
+
+    @Test
+    public void shouldRestoreCartsFromSnapshotAndJournalWhenRestart() throws Exception {
+        File dir = temporaryFolder.newFolder("journal");
+
+        CartSessionService before = newCartSessionService(dir);
+        String cartId = before.createCart().getCartId();
+        before.addLine(cartId, mockCartProductRequest("1", "1"));
+        before.snapshotCarts();
+        before.addLine(cartId, mockCartProductRequest("2", "1"));
+        before.snapshotCarts();
+        before.addLine(cartId, mockCartProductRequest("1", "2"));
+        before.close();
+
+        // broken record at the end is skipped
+        File[] journals = dir.listFiles((file, name) -> name.startsWith("journal-"));
+        Assert.assertEquals(1, journals.length);
+        try (FileOutputStream journal = new FileOutputStream(journals[0], true)) {
+            journal.write(new byte[]{0, 0, 0, 20, 2, 0});
+        }
+
+        CartSessionService after = newCartSessionService(dir);
+        CartSessionResponse response = after.getCart(cartId);
+
+        Assert.assertEquals(2, response.getCart().getProducts().size());
+        Assert.assertEquals(3, response.getCart().getProducts().get(0).getAmount());
+        Assert.assertEquals(1, response.getCart().getProducts().get(1).getAmount());
+        Assert.assertEquals("30.0", response.getCart().getDiscount());
+        Assert.assertEquals("470.0", response.getCart().getNet());
+        after.close();
+    }
+
+    @Test
+    public void shouldWriteRemovedLineToJournalWhenBookIsNotInCatalogAnymore() throws Exception {
+        File dir = temporaryFolder.newFolder("journal");
+
+        CartSessionService before = newCartSessionService(dir);
+        String cartId = before.createCart().getCartId();
+        before.addLine(cartId, mockCartProductRequest("1", "1"));
+        before.addLine(cartId, mockCartProductRequest("8", "1"));
+
+        // book 8 is removed from the catalog, so it is removed from the cart
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        builder.add(mockBook("1", "Harry (I)", "100"));
+        Mockito.when(catalogService.getCatalogIndex())
+                .thenReturn(builder.build().withPromotion(promotionService.getPromotionConfig()));
+        Assert.assertEquals(1, before.getCart(cartId).getCart().getProducts().size());
+        before.close();
+
+        // book 8 is back, the cart from the journal still has no line of it
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(mockCatalogIndex());
+        CartSessionService after = newCartSessionService(dir);
+        CartSessionResponse response = after.getCart(cartId);
+
+        Assert.assertEquals(1, response.getCart().getProducts().size());
+        Assert.assertEquals("1", response.getCart().getProducts().get(0).getProductId());
+        after.close();
+    }
+
+    @Test
+    public void shouldKeepWritingJournalWhenNextJournalCannotBeOpened() throws Exception {
+        File dir = temporaryFolder.newFolder("journal");
+
+        CartSessionService before = newCartSessionService(dir);
+        String cartId = before.createCart().getCartId();
+        before.addLine(cartId, mockCartProductRequest("1", "1"));
+
+        // next journal is a directory, so it cannot be opened as a file
+        File nextJournal = new File(dir, "journal-2.log");
+        Assert.assertTrue(nextJournal.mkdir());
+        before.snapshotCarts();
+        before.addLine(cartId, mockCartProductRequest("2", "1"));
+        before.close();
+        Assert.assertTrue(nextJournal.delete());
+
+        CartSessionService after = newCartSessionService(dir);
+        CartSessionResponse response = after.getCart(cartId);
+
+        Assert.assertEquals(2, response.getCart().getProducts().size());
+        Assert.assertEquals("2", response.getCart().getProducts().get(1).getProductId());
+        after.close();
+    }
+
+    private CartSessionService newCartSessionService(File dir) throws Exception {
+        CartSessionService service = new CartSessionService();
+        ReflectionTestUtils.setField(service, "catalogService", catalogService);
+        ReflectionTestUtils.setField(service, "ttl", 60000L);
+        ReflectionTestUtils.setField(service, "journalDir", dir.getPath());
+        ReflectionTestUtils.setField(service, "journalFsync", FsyncPolicy.ALWAYS);
+        ReflectionTestUtils.setField(service, "journalFsyncInterval", 1000L);
+        ReflectionTestUtils.setField(service, "journalQueueSize", 100);
+        ReflectionTestUtils.setField(service, "journalBatchSize", 10);
+        service.init();
+
+        return service;
+    }
+
+    private CartProductRequest mockCartProductRequest(String id, String amount) {
+        CartProductRequest cartProductRequest = new CartProductRequest();
+        cartProductRequest.setProductId(id);
+        cartProductRequest.setAmount(Integer.valueOf(amount));
+
+        return cartProductRequest;
+    }
+
+    private CatalogIndex mockCatalogIndex() {
+        List<Book> books = new ArrayList<>();
+        books.add(mockBook("1", "Harry (I)", "100"));
+        books.add(mockBook("2", "Harry (II)", "200"));
+        books.add(mockBook("3", "Harry (III)", "300"));
+        books.add(mockBook("8", "Conan", "800"));
+
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        books.forEach(builder::add);
+
+        return builder.build().withPromotion(promotionService.getPromotionConfig());
+    }
+
+    private Book mockBook(String id, String title, String price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setPrice(price);
+        book.setCover("cover");
+
+        return book;
+    }
+}
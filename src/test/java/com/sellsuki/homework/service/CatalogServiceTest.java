@@ -0,0 +1,361 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.exceptions.InternalServerErrorException;
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.Catalog;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.types.CircuitState;
+import com.sellsuki.homework.types.ErrorType;
+import com.sellsuki.homework.utils.CatalogSnapshotFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CatalogServiceTest {
+
+    @InjectMocks
+    private CatalogService catalogService;
+
+    @Mock
+    private BookService bookService;
+
+    @Spy
+    private PromotionService promotionService = new PromotionService();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        ReflectionTestUtils.setField(catalogService, "ttl", 60000L);
+        ReflectionTestUtils.setField(catalogService, "maxStale", 0L);
+        ReflectionTestUtils.setField(catalogService, "joinTimeout", 5000L);
+        ReflectionTestUtils.setField(catalogService, "breakerFailureThreshold", 2);
+        ReflectionTestUtils.setField(catalogService, "breakerOpenDuration", 60000L);
+        ReflectionTestUtils.setField(promotionService, "promotionBookId", "1");
+        ReflectionTestUtils.setField(promotionService, "promotionTiers", "0,0,10");
+        promotionService.init();
+        catalogService.init();
+    }
+
+    @After
+    public void tearDown() {
+        catalogService.destroy();
+    }
+
+    @Test
+    public void shouldGetBookListFromAPIOnceWhenSnapshotIsNotExpired() throws Exception {
+        Mockito.when(bookService.getBookListFromAPI()).thenReturn(mockBookListFromAPI());
+
+        CatalogIndex first = catalogService.getCatalogIndex();
+        CatalogIndex second = catalogService.getCatalogIndex();
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, second.size());
+        Assert.assertTrue(second.isPromotion(second.slotOf("1")));
+        Mockito.verify(bookService, Mockito.times(1)).getBookListFromAPI();
+    }
+
+    @Test
+    public void shouldGetBookListFromAPIAgainWhenSnapshotIsExpired() throws Exception {
+        ReflectionTestUtils.setField(catalogService, "ttl", 0L);
+        Mockito.when(bookService.getBookListFromAPI()).thenReturn(mockBookListFromAPI());
+
+        catalogService.getCatalogIndex();
+        catalogService.getCatalogIndex();
+
+        Mockito.verify(bookService, Mockito.times(2)).getBookListFromAPI();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldNotWaitLongerThanJoinTimeoutWhenFetchOfOtherCallerHangs() throws Exception {
+        ReflectionTestUtils.setField(catalogService, "joinTimeout", 50L);
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        Mockito.when(bookService.getBookListFromAPI()).thenAnswer(invocation -> {
+            fetchStarted.countDown();
+            releaseFetch.await();
+            return mockBookListFromAPI();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Catalog> leader = executor.submit(() -> catalogService.refresh());
+        fetchStarted.await();
+
+        try {
+            catalogService.refresh();
+            Assert.fail();
+        } catch (InternalServerErrorException ex) {
+            Assert.assertEquals(ErrorType.CANNOT_GET_BOOK_LIST, ex.getErrorType());
+        } finally {
+            releaseFetch.countDown();
+        }
+
+        Assert.assertEquals(1, leader.get().getIndex().size());
+        Assert.assertEquals(1, catalogService.getCoalescedCount());
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldKeepSnapshotWhenRefreshInBackgroundFailed() throws Exception {
+        Mockito.when(bookService.getBookListFromAPI())
+                .thenReturn(mockBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+        catalogService.refreshInBackground();
+
+        Assert.assertSame(catalogIndex, catalogService.getCatalogIndex());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldGetBookListFromAPIOnceWhenManyCallersRefreshAtTheSameTime() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        Mockito.when(bookService.getBookListFromAPI()).thenAnswer(invocation -> {
+            fetchStarted.countDown();
+            releaseFetch.await();
+            return mockBookListFromAPI();
+        });
+
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Catalog>> results = new ArrayList<>();
+        results.add(executor.submit(() -> catalogService.refresh()));
+        fetchStarted.await();
+        for (int i = 1; i < callers; i++) {
+            results.add(executor.submit(() -> catalogService.refresh()));
+        }
+        while (catalogService.getCoalescedCount() < callers - 1) {
+            Thread.sleep(1);
+        }
+        releaseFetch.countDown();
+
+        for (Future<Catalog> result : results) {
+            Assert.assertSame(results.get(0).get(), result.get());
+        }
+        executor.shutdown();
+
+        Mockito.verify(bookService, Mockito.times(1)).getBookListFromAPI();
+        Assert.assertEquals(1, catalogService.getFetchCount());
+        Assert.assertEquals(callers - 1, catalogService.getCoalescedCount());
+    }
+
+    @Test(timeout = 5000)
+    public void shouldGetStaleSnapshotAndRefreshInBackgroundWhenSnapshotIsExpired() throws Exception {
+        ReflectionTestUtils.setField(catalogService, "ttl", 0L);
+        ReflectionTestUtils.setField(catalogService, "maxStale", 60000L);
+        Mockito.when(bookService.getBookListFromAPI())
+                .thenReturn(mockBookListFromAPI())
+                .thenReturn(mockBookListFromAPI());
+
+        CatalogIndex stale = catalogService.getCatalogIndex();
+
+        Assert.assertSame(stale, catalogService.getCatalogIndex());
+        while (catalogService.getFetchCount() < 2 || catalogService.getCatalog().getIndex() == stale) {
+            Thread.sleep(1);
+        }
+        Mockito.verify(bookService, Mockito.times(2)).getBookListFromAPI();
+    }
+
+    @Test
+    public void shouldFailFastWhenCircuitIsOpen() throws Exception {
+        Mockito.when(bookService.getBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                catalogService.getCatalogIndex();
+                Assert.fail();
+            } catch (InternalServerErrorException ex) {
+                Assert.assertEquals(ErrorType.CANNOT_GET_BOOK_LIST, ex.getErrorType());
+            }
+        }
+
+        Assert.assertEquals(CircuitState.OPEN, catalogService.getCircuitBreaker().getState());
+        Mockito.verify(bookService, Mockito.times(2)).getBookListFromAPI();
+    }
+
+    @Test
+    public void shouldCloseCircuitWhenProbeIsSuccess() throws Exception {
+        ReflectionTestUtils.setField(catalogService, "breakerOpenDuration", 0L);
+        catalogService.init();
+        Mockito.when(bookService.getBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST))
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST))
+                .thenReturn(mockBookListFromAPI());
+
+        catalogService.refreshInBackground();
+        catalogService.refreshInBackground();
+        Assert.assertEquals(CircuitState.OPEN, catalogService.getCircuitBreaker().getState());
+
+        CatalogIndex catalogIndex = catalogService.getCatalogIndex();
+
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertEquals(CircuitState.CLOSED, catalogService.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void shouldSetPromotionAgainWithoutGetBookListWhenPromotionIsChanged() throws Exception {
+        Mockito.when(bookService.getBookListFromAPI()).thenReturn(mockBookListFromAPI());
+
+        CatalogIndex before = catalogService.getCatalogIndex();
+        promotionService.updatePromotionBookId("2, 3");
+        CatalogIndex after = catalogService.getCatalogIndex();
+
+        Assert.assertTrue(before.isPromotion(before.slotOf("1")));
+        Assert.assertFalse(after.isPromotion(after.slotOf("1")));
+        Assert.assertSame(after, catalogService.getCatalogIndex());
+        Mockito.verify(bookService, Mockito.times(1)).getBookListFromAPI();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldLoadSnapshotFileBeforeGetBookListFromAPIWhenStart() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "catalog.snapshot");
+        ReflectionTestUtils.setField(catalogService, "snapshotFile", file.getPath());
+        catalogService.init();
+        Mockito.when(bookService.getBookListFromAPI()).thenReturn(mockBookListFromAPI());
+
+        catalogService.getCatalogIndex();
+        while (!file.isFile()) {
+            Thread.sleep(1);
+        }
+
+        // book list api is down after restart
+        BookService downBookService = Mockito.mock(BookService.class);
+        Mockito.when(downBookService.getBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+        CatalogService restarted = newCatalogService(downBookService, file);
+
+        CatalogIndex catalogIndex = restarted.getCatalogIndex();
+
+        Assert.assertEquals(1, catalogIndex.size());
+        Assert.assertEquals("Harry (I)", catalogIndex.getTitle(catalogIndex.slotOf("1")));
+        Assert.assertEquals(10000L, catalogIndex.getPriceMinor(catalogIndex.slotOf("1")));
+        Assert.assertTrue(catalogIndex.isPromotion(catalogIndex.slotOf("1")));
+        restarted.destroy();
+    }
+
+    @Test
+    public void shouldGetBookListFromAPIWhenSnapshotFileIsOlderThanMaxStale() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "catalog.snapshot");
+        new CatalogSnapshotFile(file).write(mockBookListFromAPI(), System.currentTimeMillis() - 3600000L - 1);
+
+        BookService downBookService = Mockito.mock(BookService.class);
+        Mockito.when(downBookService.getBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+        CatalogService restarted = newCatalogService(downBookService, file);
+
+        try {
+            restarted.getCatalogIndex();
+            Assert.fail();
+        } catch (InternalServerErrorException ex) {
+            Mockito.verify(downBookService, Mockito.times(1)).getBookListFromAPI();
+        } finally {
+            restarted.destroy();
+        }
+    }
+
+    @Test
+    public void shouldNotLoadSnapshotFileWhenChecksumIsWrong() throws Exception {
+        File file = new File(temporaryFolder.getRoot(), "catalog.snapshot");
+        ReflectionTestUtils.setField(catalogService, "snapshotFile", file.getPath());
+        catalogService.init();
+        Mockito.when(bookService.getBookListFromAPI()).thenReturn(mockBookListFromAPI());
+
+        catalogService.getCatalogIndex();
+        while (!file.isFile()) {
+            Thread.sleep(1);
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file.toPath(), bytes);
+
+        CatalogService restarted = newCatalogService(bookService, file);
+
+        Assert.assertNull(restarted.getCatalog());
+        restarted.destroy();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldNotBlockCallerWhenGetCatalogIndexAsync() throws Exception {
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        Mockito.when(bookService.getBookListFromAPI()).thenAnswer(invocation -> {
+            releaseFetch.await();
+            return mockBookListFromAPI();
+        });
+
+        CompletableFuture<CatalogIndex> first = catalogService.getCatalogIndexAsync();
+        CompletableFuture<CatalogIndex> second = catalogService.getCatalogIndexAsync();
+
+        Assert.assertFalse(first.isDone());
+        Assert.assertFalse(second.isDone());
+        releaseFetch.countDown();
+
+        Assert.assertEquals(1, first.get().size());
+        Assert.assertSame(first.get(), second.get());
+        Assert.assertTrue(catalogService.getCatalogIndexAsync().isDone());
+        Assert.assertEquals(1, catalogService.getFetchCount());
+        Mockito.verify(bookService, Mockito.times(1)).getBookListFromAPI();
+    }
+
+    @Test(timeout = 5000)
+    public void shouldCompleteExceptionallyWhenGetCatalogIndexAsyncIsFailed() throws Exception {
+        Mockito.when(bookService.getBookListFromAPI())
+                .thenThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST));
+
+        try {
+            catalogService.getCatalogIndexAsync().get();
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof InternalServerErrorException);
+        }
+    }
+
+    private CatalogService newCatalogService(BookService bookService, File file) {
+        CatalogService service = new CatalogService();
+        ReflectionTestUtils.setField(service, "bookService", bookService);
+        ReflectionTestUtils.setField(service, "promotionService", promotionService);
+        ReflectionTestUtils.setField(service, "ttl", 60000L);
+        ReflectionTestUtils.setField(service, "maxStale", 3600000L);
+        ReflectionTestUtils.setField(service, "joinTimeout", 5000L);
+        ReflectionTestUtils.setField(service, "breakerFailureThreshold", 2);
+        ReflectionTestUtils.setField(service, "breakerOpenDuration", 60000L);
+        ReflectionTestUtils.setField(service, "snapshotFile", file.getPath());
+        service.init();
+
+        return service;
+    }
+
+    private CatalogIndex mockBookListFromAPI() {
+        Book book = new Book();
+        book.setId("1");
+        book.setTitle("Harry (I)");
+        book.setPrice("100");
+        book.setCover("cover");
+
+        return CatalogIndex.builder().add(book).build();
+    }
+}
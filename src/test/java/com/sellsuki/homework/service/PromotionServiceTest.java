@@ -0,0 +1,273 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.config.PricingMetrics;
+import com.sellsuki.homework.dto.CartProductRequestDTO;
+import com.sellsuki.homework.dto.PromotionGroupDTO;
+import com.sellsuki.homework.dto.PromotionRulesDTO;
+import com.sellsuki.homework.model.Money;
+import com.sellsuki.homework.model.PromotionConfig;
+import com.sellsuki.homework.utils.BundleOptimizer;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PromotionServiceTest {
+
+    private PromotionService promotionService = new PromotionService();
+
+    private PricingMetrics pricingMetrics = new PricingMetrics();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        ReflectionTestUtils.setField(promotionService, "promotionBookId", "1,2,3");
+        ReflectionTestUtils.setField(promotionService, "promotionTiers", "0,0,10,11,12,13,14,15");
+        ReflectionTestUtils.setField(promotionService, "bundleMemoSize", 100);
+        ReflectionTestUtils.setField(promotionService, "bundleMaxStates", 100000);
+        ReflectionTestUtils.setField(promotionService, "pricingMetrics", pricingMetrics);
+        promotionService.init();
+    }
+
+    @Test
+    public void shouldParsePromotionBookIdOnce() {
+        promotionService.updatePromotionBookId(" 1,2 ,,3");
+        long version = promotionService.getPromotionConfig().getVersion();
+
+        Assert.assertEquals(3, promotionService.getPromotionConfig().getProductIds().size());
+        Assert.assertTrue(promotionService.isPromotion("2"));
+        Assert.assertFalse(promotionService.isPromotion("4"));
+
+        promotionService.updatePromotionBookId("4");
+
+        Assert.assertTrue(promotionService.isPromotion("4"));
+        Assert.assertEquals(version + 1, promotionService.getPromotionConfig().getVersion());
+    }
+
+    @Test
+    public void shouldKeepVersionWhenRulesAreNotChanged() {
+        PromotionConfig promotionConfig = promotionService.getPromotionConfig();
+
+        promotionService.updatePromotionBookId("3,2,1");
+
+        Assert.assertSame(promotionConfig, promotionService.getPromotionConfig());
+    }
+
+    @Test
+    public void shouldNotDiscountWhenHaveNoPromotionBook() {
+        Money discount = promotionService.calculateDiscount(new ArrayList<>(), promotionService.getPromotionConfig());
+
+        Assert.assertEquals(Money.ZERO, discount);
+    }
+
+    @Test
+    public void shouldDiscountSameAsRoundByRoundWhenLargestAmountIsShared() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 2, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 2, "200"));
+        productDTOs.add(mockCartProductRequestDTO("3", 1, "300"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        // round 1: 11% of 600, round 2: 10% of 300
+        Assert.assertEquals("96.0", discount.toString());
+        Assert.assertEquals(1, bundleOptimizer().getFastPathCount());
+    }
+
+    @Test
+    public void shouldSplitBundleWhenBetterThanRoundByRound() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 2, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 1, "100"));
+        productDTOs.add(mockCartProductRequestDTO("3", 1, "100"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        // {1, 2} + {1, 3} is 10% of 400, round by round {1, 2, 3} + {1} is only 11% of 300
+        Assert.assertEquals("40.0", discount.toString());
+        Assert.assertEquals(1, bundleOptimizer().getDpCount());
+    }
+
+    @Test
+    public void shouldDiscountMoreThanRoundByRoundWhenAmountIsDifferent() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 4, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 2, "200"));
+        productDTOs.add(mockCartProductRequestDTO("3", 1, "300"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        // {1, 2} + {1, 2} + {1, 3} + {1} is 30 + 30 + 40, round by round is only 66 + 30
+        Assert.assertEquals("100.0", discount.toString());
+    }
+
+    @Test
+    public void shouldUseMemoWhenSameCartInOtherOrder() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 3, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 1, "200"));
+        productDTOs.add(mockCartProductRequestDTO("3", 1, "300"));
+
+        Money first = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+        Collections.reverse(productDTOs);
+        Money second = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, bundleOptimizer().getDpCount());
+        Assert.assertEquals(1, bundleOptimizer().getMemoHitCount());
+    }
+
+    @Test(timeout = 1000)
+    public void shouldNotDiscountLessThanRoundByRoundWhenDpTableIsTooBig() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 999999999, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 999999998, "200"));
+        productDTOs.add(mockCartProductRequestDTO("3", 999999997, "300"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        Assert.assertEquals(1, bundleOptimizer().getFallbackCount());
+        // 11% of 600 * 999999997 + 10% of 300 + 0% of 100
+        Assert.assertEquals(999999997L * 6600 + 3000, discount.getMinor());
+    }
+
+    @Test
+    public void shouldCountEveryLineAsTitleWhenSameProductIdInManyLines() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 1, "100"));
+        productDTOs.add(mockCartProductRequestDTO("1", 1, "100"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        // same as the round by round calculation: 1 round of 2 lines, 10% of 200
+        Assert.assertEquals(Money.ofMinor(2000), discount);
+    }
+
+    @Test(timeout = 1000)
+    public void shouldDiscountWithoutLoopWhenAmountIsMaximum() {
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 999999999, "100"));
+        productDTOs.add(mockCartProductRequestDTO("2", 999999999, "200"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        Assert.assertEquals(999999999L * 3000, discount.getMinor());
+    }
+
+    @Test
+    public void shouldDiscountEachPromotionGroupWithItsOwnTiers() {
+        promotionService.updatePromotionRules(mockPromotionRules(
+                mockPromotionGroup("harry", Arrays.asList("1", "2"), Arrays.asList(0, 0, 10)),
+                mockPromotionGroup("conan", Arrays.asList("3", "4"), Arrays.asList(0, 0, 20))
+        ));
+
+        List<CartProductRequestDTO> productDTOs = new ArrayList<>();
+        productDTOs.add(mockCartProductRequestDTO("1", 1, "100"));
+        productDTOs.add(mockCartProductRequestDTO("3", 1, "300"));
+        productDTOs.add(mockCartProductRequestDTO("2", 1, "100"));
+        productDTOs.add(mockCartProductRequestDTO("4", 1, "300"));
+
+        Money discount = promotionService.calculateDiscount(productDTOs, promotionService.getPromotionConfig());
+
+        // 10% of {1, 2} + 20% of {3, 4}, books of different groups are not bundled together
+        Assert.assertEquals("140.0", discount.toString());
+    }
+
+    @Test
+    public void shouldNotChangeRulesWhenProductIsInManyGroups() {
+        long version = promotionService.getPromotionConfig().getVersion();
+
+        try {
+            promotionService.updatePromotionRules(mockPromotionRules(
+                    mockPromotionGroup("harry", Arrays.asList("1", "2"), Arrays.asList(0, 0, 10)),
+                    mockPromotionGroup("conan", Arrays.asList("2", "3"), Arrays.asList(0, 0, 20))
+            ));
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            Assert.assertEquals(version, promotionService.getPromotionConfig().getVersion());
+        }
+    }
+
+    @Test
+    public void shouldReloadRulesWhenRulesFileIsChanged() throws Exception {
+        File rulesFile = temporaryFolder.newFile("promotion-rules.json");
+        writeRules(rulesFile, "{\"groups\":[{\"name\":\"harry\",\"productIds\":[\"1\",\"2\"],\"percents\":[0,0,10]}]}");
+        ReflectionTestUtils.setField(promotionService, "rulesFile", rulesFile.getPath());
+        promotionService.init();
+
+        Assert.assertTrue(promotionService.isPromotion("1"));
+        Assert.assertFalse(promotionService.isPromotion("3"));
+        long version = promotionService.getPromotionConfig().getVersion();
+
+        promotionService.reloadRules();
+        Assert.assertEquals(version, promotionService.getPromotionConfig().getVersion());
+
+        writeRules(rulesFile, "{\"groups\":[{\"name\":\"harry\",\"productIds\":[\"3\"],\"percents\":[0,0,10]}]}");
+        Assert.assertTrue(rulesFile.setLastModified(rulesFile.lastModified() + 1000));
+        promotionService.reloadRules();
+
+        Assert.assertTrue(promotionService.isPromotion("3"));
+        Assert.assertEquals(version + 1, promotionService.getPromotionConfig().getVersion());
+    }
+
+    @Test
+    public void shouldKeepRulesWhenRulesFileIsWrong() throws Exception {
+        File rulesFile = temporaryFolder.newFile("promotion-rules.json");
+        writeRules(rulesFile, "{\"groups\":[{\"name\":\"harry\",\"productIds\":[\"1\"],\"percents\":[0,0,10]}]}");
+        ReflectionTestUtils.setField(promotionService, "rulesFile", rulesFile.getPath());
+        promotionService.init();
+
+        writeRules(rulesFile, "{\"groups\":[{\"name\":\"harry\",\"productIds\":[\"2\"],\"percents\":[0,0,101]}]}");
+        Assert.assertTrue(rulesFile.setLastModified(rulesFile.lastModified() + 1000));
+        promotionService.reloadRules();
+
+        Assert.assertTrue(promotionService.isPromotion("1"));
+        Assert.assertFalse(promotionService.isPromotion("2"));
+    }
+
+    private CartProductRequestDTO mockCartProductRequestDTO(String id, int amount, String price) {
+        CartProductRequestDTO productDTO = new CartProductRequestDTO();
+        productDTO.setProductId(id);
+        productDTO.setAmount(amount);
+        productDTO.setPriceMinor(Money.parseMinor(price));
+        productDTO.setPromotionGroup(promotionService.getPromotionConfig().groupOf(id));
+
+        return productDTO;
+    }
+
+    private BundleOptimizer bundleOptimizer() {
+        return promotionService.getPromotionConfig().getGroups().get(0).getBundleOptimizer();
+    }
+
+    private PromotionRulesDTO mockPromotionRules(PromotionGroupDTO... groups) {
+        PromotionRulesDTO rules = new PromotionRulesDTO();
+        rules.setGroups(Arrays.asList(groups));
+
+        return rules;
+    }
+
+    private PromotionGroupDTO mockPromotionGroup(String name, List<String> productIds, List<Integer> percents) {
+        PromotionGroupDTO group = new PromotionGroupDTO();
+        group.setName(name);
+        group.setProductIds(productIds);
+        group.setPercents(percents);
+
+        return group;
+    }
+
+    private void writeRules(File rulesFile, String rules) throws Exception {
+        Files.write(rulesFile.toPath(), rules.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.sellsuki.homework.service;
+
+import com.sellsuki.homework.dto.CartProductRequestDTO;
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.model.Money;
+import com.sellsuki.homework.model.PromotionConfig;
+import com.sellsuki.homework.model.Quote;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class QuoteServiceTest {
+
+    private QuoteService quoteService = new QuoteService();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(quoteService, "maxSize", 2);
+        ReflectionTestUtils.setField(quoteService, "segments", 1);
+        quoteService.init();
+    }
+
+    @Test
+    public void shouldHaveSameKeyWhenSameLinesInOtherOrder() {
+        CatalogIndex catalogIndex = mockCatalogIndex(mockPromotionConfig(1));
+
+        String key = quoteService.keyOf(Arrays.asList(
+                mockCartProductRequestDTO("1", 2), mockCartProductRequestDTO("2", 1), mockCartProductRequestDTO("1", 1)),
+                catalogIndex);
+        String otherKey = quoteService.keyOf(Arrays.asList(
+                mockCartProductRequestDTO("1", 1), mockCartProductRequestDTO("2", 1), mockCartProductRequestDTO("1", 2)),
+                catalogIndex);
+
+        Assert.assertEquals(key, otherKey);
+        Assert.assertNotEquals(key, quoteService.keyOf(Arrays.asList(mockCartProductRequestDTO("1", 3)), catalogIndex));
+    }
+
+    @Test
+    public void shouldHaveOtherKeyWhenProductIsSplitToManyLines() {
+        CatalogIndex catalogIndex = mockCatalogIndex(mockPromotionConfig(1));
+
+        // every line is a title for the discount, so 1 + 1 is not priced the same as 2
+        String key = quoteService.keyOf(Arrays.asList(mockCartProductRequestDTO("1", 2)), catalogIndex);
+        String splitKey = quoteService.keyOf(Arrays.asList(
+                mockCartProductRequestDTO("1", 1), mockCartProductRequestDTO("1", 1)), catalogIndex);
+
+        Assert.assertNotEquals(key, splitKey);
+    }
+
+    @Test
+    public void shouldRemoveQuotesWhenPromotionRulesAreChanged() {
+        CatalogIndex catalogIndex = mockCatalogIndex(mockPromotionConfig(1));
+        List<CartProductRequestDTO> cart = Arrays.asList(mockCartProductRequestDTO("1", 1));
+        String key = quoteService.keyOf(cart, catalogIndex);
+
+        Assert.assertNull(quoteService.getQuote(key, catalogIndex));
+        quoteService.putQuote(key, catalogIndex, new Quote(Money.parse("100"), Money.ZERO));
+        Assert.assertNotNull(quoteService.getQuote(key, catalogIndex));
+
+        CatalogIndex promoted = catalogIndex.withPromotion(mockPromotionConfig(2));
+        String promotedKey = quoteService.keyOf(cart, promoted);
+
+        Assert.assertNull(quoteService.getQuote(promotedKey, promoted));
+        Assert.assertEquals(0, quoteService.getSize());
+        Assert.assertEquals(2, quoteService.getInvalidationCount());
+
+        // request with the old rules finishes late, its quote is not kept
+        quoteService.putQuote(key, catalogIndex, new Quote(Money.parse("100"), Money.ZERO));
+        Assert.assertEquals(0, quoteService.getSize());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedQuoteWhenCacheIsFull() {
+        CatalogIndex catalogIndex = mockCatalogIndex(mockPromotionConfig(1));
+        // first lookup moves the cache to versions of this catalog
+        quoteService.getQuote("", catalogIndex);
+        for (int amount = 1; amount <= 3; amount++) {
+            String key = quoteService.keyOf(Collections.singletonList(mockCartProductRequestDTO("1", amount)), catalogIndex);
+            quoteService.putQuote(key, catalogIndex, new Quote(Money.ZERO, Money.ZERO));
+        }
+
+        Assert.assertEquals(2, quoteService.getSize());
+        Assert.assertEquals(1, quoteService.getEvictionCount());
+    }
+
+    private PromotionConfig mockPromotionConfig(long version) {
+        return new PromotionConfig(Collections.emptyList(), version);
+    }
+
+    private CatalogIndex mockCatalogIndex(PromotionConfig promotionConfig) {
+        List<Book> books = new ArrayList<>();
+        books.add(mockBook("1", "100"));
+        books.add(mockBook("2", "200"));
+
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        books.forEach(builder::add);
+
+        return builder.build().withPromotion(promotionConfig);
+    }
+
+    private Book mockBook(String id, String price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Harry");
+        book.setPrice(price);
+        book.setCover("cover");
+
+        return book;
+    }
+
+    private CartProductRequestDTO mockCartProductRequestDTO(String id, int amount) {
+        CartProductRequestDTO productDTO = new CartProductRequestDTO();
+        productDTO.setProductId(id);
+        productDTO.setAmount(amount);
+
+        return productDTO;
+    }
+}
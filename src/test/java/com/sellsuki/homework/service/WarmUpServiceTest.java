@@ -0,0 +1,138 @@
+package com.sellsuki.homework.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.exceptions.BadRequestException;
+import com.sellsuki.homework.exceptions.InternalServerErrorException;
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+import com.sellsuki.homework.request.CreateCartRequest;
+import com.sellsuki.homework.response.CreateCartResponse;
+import com.sellsuki.homework.types.ErrorType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WarmUpServiceTest {
+
+    @InjectMocks
+    private WarmUpService warmUpService;
+
+    @Mock
+    private CatalogService catalogService;
+
+    @Mock
+    private CartService cartService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Before
+    public void setUp() throws Exception {
+        ReflectionTestUtils.setField(warmUpService, "enabled", true);
+        ReflectionTestUtils.setField(warmUpService, "carts", "");
+        ReflectionTestUtils.setField(warmUpService, "iterations", 10);
+        Mockito.when(cartService.createCartWithoutCache(Matchers.any(CreateCartRequest.class), Matchers.any(CatalogIndex.class)))
+                .thenReturn(new CreateCartResponse());
+    }
+
+    @Test
+    public void shouldReadyAfterWarmUpWithCartsFromCatalog() throws Exception {
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        Assert.assertFalse(warmUpService.isReady());
+
+        warmUpService.warmUp();
+
+        ArgumentCaptor<CreateCartRequest> requests = ArgumentCaptor.forClass(CreateCartRequest.class);
+        Mockito.verify(cartService, Mockito.times(10)).createCartWithoutCache(requests.capture(), Matchers.eq(catalogIndex));
+        Mockito.verify(objectMapper, Mockito.times(10)).writeValueAsBytes(Matchers.any());
+        Assert.assertTrue(warmUpService.isReady());
+        Assert.assertEquals(10, warmUpService.getWarmUpCarts());
+        Assert.assertEquals(1, requests.getAllValues().get(0).getProducts().size());
+        Assert.assertEquals(2, requests.getAllValues().get(1).getProducts().size());
+        Assert.assertEquals("1", requests.getAllValues().get(1).getProducts().get(0).getProductId());
+        Assert.assertEquals("2", requests.getAllValues().get(1).getProducts().get(1).getProductId());
+    }
+
+    @Test
+    public void shouldWarmUpWithConfiguredCarts() throws Exception {
+        ReflectionTestUtils.setField(warmUpService, "carts", "1:2, 2:1|3:1");
+        ReflectionTestUtils.setField(warmUpService, "iterations", 3);
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+
+        warmUpService.warmUp();
+
+        ArgumentCaptor<CreateCartRequest> requests = ArgumentCaptor.forClass(CreateCartRequest.class);
+        Mockito.verify(cartService, Mockito.times(3)).createCartWithoutCache(requests.capture(), Matchers.eq(catalogIndex));
+        List<CreateCartRequest> values = requests.getAllValues();
+        Assert.assertEquals(2, values.get(0).getProducts().size());
+        Assert.assertEquals(Integer.valueOf(2), values.get(0).getProducts().get(0).getAmount());
+        Assert.assertEquals("2", values.get(0).getProducts().get(1).getProductId());
+        Assert.assertEquals("3", values.get(1).getProducts().get(0).getProductId());
+        Assert.assertSame(values.get(0), values.get(2));
+    }
+
+    @Test
+    public void shouldReadyWhenWarmUpIsFailed() throws Exception {
+        Mockito.doThrow(new InternalServerErrorException(ErrorType.CANNOT_GET_BOOK_LIST)).when(catalogService).getCatalogIndex();
+
+        warmUpService.warmUp();
+
+        Assert.assertTrue(warmUpService.isReady());
+        Assert.assertEquals(0, warmUpService.getWarmUpCarts());
+        Mockito.verify(cartService, Mockito.never())
+                .createCartWithoutCache(Matchers.any(CreateCartRequest.class), Matchers.any(CatalogIndex.class));
+    }
+
+    @Test
+    public void shouldCountOnlySuccessCartsWhenWarmUp() throws Exception {
+        CatalogIndex catalogIndex = mockCatalogIndex();
+        Mockito.when(catalogService.getCatalogIndex()).thenReturn(catalogIndex);
+        Mockito.when(cartService.createCartWithoutCache(Matchers.any(CreateCartRequest.class), Matchers.any(CatalogIndex.class)))
+                .thenThrow(new BadRequestException(ErrorType.PRODUCT_NOT_FOUND))
+                .thenReturn(new CreateCartResponse());
+
+        warmUpService.warmUp();
+
+        Assert.assertTrue(warmUpService.isReady());
+        Assert.assertEquals(9, warmUpService.getWarmUpCarts());
+    }
+
+    @Test
+    public void shouldReadyWithoutWarmUpWhenDisabled() throws Exception {
+        ReflectionTestUtils.setField(warmUpService, "enabled", false);
+
+        warmUpService.warmUp();
+
+        Assert.assertTrue(warmUpService.isReady());
+        Mockito.verify(catalogService, Mockito.never()).getCatalogIndex();
+    }
+
+    private CatalogIndex mockCatalogIndex() {
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        for (int i = 1; i <= 3; i++) {
+            Book book = new Book();
+            book.setId(String.valueOf(i));
+            book.setTitle("Harry (" + i + ")");
+            book.setPrice(String.valueOf(i * 100));
+            book.setCover("cover");
+            builder.add(book);
+        }
+
+        return builder.build();
+    }
+}
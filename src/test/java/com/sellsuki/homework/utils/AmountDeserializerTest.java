@@ -0,0 +1,46 @@
+package com.sellsuki.homework.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sellsuki.homework.request.CartProductRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AmountDeserializerTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void shouldReadAmountFromStringAndNumber() throws Exception {
+        Assert.assertEquals(Integer.valueOf(12), readAmount("\"12\""));
+        Assert.assertEquals(Integer.valueOf(12), readAmount("12"));
+        Assert.assertEquals(Integer.valueOf(999999999), readAmount("\"999999999\""));
+    }
+
+    @Test
+    public void shouldReadInvalidWhenAmountIsNotMatchOldPattern() throws Exception {
+        String[] amounts = {"\"\"", "\"0\"", "\"012\"", "\"-1\"", "\"+1\"", "\" 1\"", "\"1.5\"", "\"hello\"",
+                "\"1234567890\"", "0", "-1", "1234567890", "12345678901234", "1.0", "true"};
+        for (String amount : amounts) {
+            Assert.assertEquals(amount, Integer.valueOf(AmountDeserializer.INVALID), readAmount(amount));
+        }
+    }
+
+    @Test
+    public void shouldLeaveNullToValidator() throws Exception {
+        Assert.assertNull(readAmount("null"));
+        Assert.assertNull(mapper.readValue("{\"productId\":\"1\"}", CartProductRequest.class).getAmount());
+    }
+
+    @Test
+    public void shouldWriteAmountAsString() throws Exception {
+        CartProductRequest request = new CartProductRequest();
+        request.setProductId("1");
+        request.setAmount(2);
+
+        Assert.assertEquals("{\"productId\":\"1\",\"amount\":\"2\"}", mapper.writeValueAsString(request));
+    }
+
+    private Integer readAmount(String amount) throws Exception {
+        return mapper.readValue("{\"productId\":\"1\",\"amount\":" + amount + "}", CartProductRequest.class).getAmount();
+    }
+}
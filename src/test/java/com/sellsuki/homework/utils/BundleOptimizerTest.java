@@ -0,0 +1,166 @@
+package com.sellsuki.homework.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class BundleOptimizerTest {
+
+    private static final int[] TIERS = {0, 0, 10, 11, 12, 13, 14, 15};
+
+    // 3 titles is much better than 4, greedy is often not the best
+    private static final int[] IRREGULAR_TIERS = {0, 5, 10, 40, 20};
+
+    @Test
+    public void shouldReturnSameDiscountAsBruteForceForRandomSmallCarts() {
+        Random random = new Random(42);
+        for (int[] percents : new int[][]{TIERS, IRREGULAR_TIERS}) {
+            BundleOptimizer bundleOptimizer = new BundleOptimizer(percents, 100, 100000);
+            for (int cart = 0; cart < 500; cart++) {
+                int titles = 1 + random.nextInt(5);
+                long[] prices = new long[titles];
+                int[] amounts = new int[titles];
+                for (int i = 0; i < titles; i++) {
+                    prices[i] = 100 * (1 + random.nextInt(10));
+                    amounts[i] = random.nextInt(4);
+                }
+
+                Assert.assertEquals(Arrays.toString(prices) + " " + Arrays.toString(amounts),
+                        bruteForce(percents, prices, amounts), bundleOptimizer.bestDiscount(prices, amounts));
+            }
+            Assert.assertTrue(bundleOptimizer.getFastPathCount() > 0);
+            Assert.assertTrue(bundleOptimizer.getDpCount() > 0);
+        }
+    }
+
+    @Test
+    public void shouldCountBooksMoreThanOtherTitlesAsSingleBundles() {
+        BundleOptimizer bundleOptimizer = new BundleOptimizer(IRREGULAR_TIERS, 100, 100000);
+        long[] prices = {300, 200, 100};
+        int[] amounts = {1, 2, 40};
+
+        Assert.assertEquals(bruteForce(IRREGULAR_TIERS, prices, amounts), bundleOptimizer.bestDiscount(prices, amounts));
+        Assert.assertEquals(1, bundleOptimizer.getDpCount());
+        Assert.assertEquals(0, bundleOptimizer.getFallbackCount());
+    }
+
+    @Test
+    public void shouldFallBackToGreedyWhenTitlesAreMoreThanDpCanTake() {
+        BundleOptimizer bundleOptimizer = new BundleOptimizer(TIERS, 100, 100000);
+        long[] prices = new long[13];
+        int[] amounts = new int[13];
+        for (int i = 0; i < 13; i++) {
+            prices[i] = 100 + i;
+            amounts[i] = 1;
+        }
+        amounts[12] = 2;
+
+        Assert.assertEquals(greedy(TIERS, prices, amounts), bundleOptimizer.bestDiscount(prices, amounts));
+        Assert.assertEquals(1, bundleOptimizer.getFallbackCount());
+        Assert.assertEquals(0, bundleOptimizer.getDpCount());
+    }
+
+    @Test
+    public void shouldFallBackToGreedyWhenDpTableIsMoreThanMaxStates() {
+        BundleOptimizer bundleOptimizer = new BundleOptimizer(IRREGULAR_TIERS, 100, 10);
+        long[] prices = {100, 200, 300};
+        int[] amounts = {2, 3, 4};
+
+        Assert.assertEquals(greedy(IRREGULAR_TIERS, prices, amounts), bundleOptimizer.bestDiscount(prices, amounts));
+        Assert.assertEquals(1, bundleOptimizer.getFallbackCount());
+        Assert.assertEquals(0, bundleOptimizer.getDpCount());
+    }
+
+    @Test
+    public void shouldReuseMemoForSameCartInAnyOrder() {
+        BundleOptimizer bundleOptimizer = new BundleOptimizer(IRREGULAR_TIERS, 100, 100000);
+
+        long first = bundleOptimizer.bestDiscount(new long[]{100, 200, 300}, new int[]{2, 1, 1});
+        long second = bundleOptimizer.bestDiscount(new long[]{300, 100, 200}, new int[]{1, 2, 1});
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, bundleOptimizer.getDpCount());
+        Assert.assertEquals(1, bundleOptimizer.getMemoHitCount());
+    }
+
+    @Test
+    public void shouldKeepMemoNotMoreThanMemoSize() {
+        BundleOptimizer bundleOptimizer = new BundleOptimizer(IRREGULAR_TIERS, 3, 100000);
+        for (int amount = 2; amount < 12; amount++) {
+            bundleOptimizer.bestDiscount(new long[]{100, 200, 300}, new int[]{amount, 1, 1});
+        }
+
+        Assert.assertEquals(10, bundleOptimizer.getDpCount());
+        Assert.assertTrue(bundleOptimizer.getMemoSize() <= 3);
+    }
+
+    // try every bundle of the titles that are left, no shortcut
+    private static long bruteForce(int[] percents, long[] prices, int[] amounts) {
+        return bruteForce(percents, prices, amounts.clone(), new HashMap<>());
+    }
+
+    private static long bruteForce(int[] percents, long[] prices, int[] counts, Map<String, Long> seen) {
+        String key = Arrays.toString(counts);
+        Long known = seen.get(key);
+        if (known != null) {
+            return known;
+        }
+
+        int left = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                left |= 1 << i;
+            }
+        }
+
+        long best = 0;
+        for (int bundle = left; bundle > 0; bundle = (bundle - 1) & left) {
+            long price = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if ((bundle & 1 << i) != 0) {
+                    price += prices[i];
+                    counts[i]--;
+                }
+            }
+            long value = price * percent(percents, Integer.bitCount(bundle)) + bruteForce(percents, prices, counts, seen);
+            for (int i = 0; i < counts.length; i++) {
+                if ((bundle & 1 << i) != 0) {
+                    counts[i]++;
+                }
+            }
+            best = Math.max(best, value);
+        }
+
+        seen.put(key, best);
+        return best;
+    }
+
+    // every round takes one book of every title that still has amount left
+    private static long greedy(int[] percents, long[] prices, int[] amounts) {
+        int[] counts = amounts.clone();
+        long discount = 0;
+        while (true) {
+            long price = 0;
+            int titles = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    price += prices[i];
+                    titles++;
+                    counts[i]--;
+                }
+            }
+            if (titles == 0) {
+                return discount;
+            }
+            discount += price * percent(percents, titles);
+        }
+    }
+
+    private static int percent(int[] percents, int titles) {
+        return titles < percents.length ? percents[titles] : 0;
+    }
+}
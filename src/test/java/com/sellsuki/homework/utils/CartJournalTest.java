@@ -0,0 +1,200 @@
+package com.sellsuki.homework.utils;
+
+import com.sellsuki.homework.model.CartSession;
+import com.sellsuki.homework.types.FsyncPolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CartJournalTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dir;
+
+    private final Map<String, CartSession> carts = new ConcurrentHashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        dir = temporaryFolder.newFolder("journal");
+    }
+
+    @Test
+    public void shouldSkipCutRecordAtEndOfJournal() throws Exception {
+        CartJournal journal = startJournal(100);
+        journal.recordCreate("cart-1", 1000);
+        journal.recordSetLine("cart-1", 1000, "1", 2);
+        journal.close();
+
+        // length says 20 bytes but only 2 are written before the crash
+        try (FileOutputStream file = new FileOutputStream(lastJournal(), true)) {
+            file.write(new byte[]{0, 0, 0, 20, 2, 0});
+        }
+
+        Map<String, CartSession> replayed = newJournal(100).replay();
+
+        Assert.assertEquals(1, replayed.size());
+        Assert.assertEquals(2, replayed.get("cart-1").getAmount("1"));
+    }
+
+    @Test
+    public void shouldSkipRecordWithWrongCrcAtEndOfJournal() throws Exception {
+        CartJournal journal = startJournal(100);
+        journal.recordCreate("cart-1", 1000);
+        journal.recordSetLine("cart-1", 1000, "1", 1);
+        journal.recordSetLine("cart-1", 2000, "1", 5);
+        journal.close();
+
+        // last byte is in the crc of the last record
+        try (RandomAccessFile file = new RandomAccessFile(lastJournal(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xff);
+        }
+
+        Map<String, CartSession> replayed = newJournal(100).replay();
+
+        Assert.assertEquals(1, replayed.get("cart-1").getAmount("1"));
+    }
+
+    @Test
+    public void shouldReplayAndRotateWhenCrashInRotationLeavesTempSnapshot() throws Exception {
+        CartJournal journal = startJournal(100);
+        journal.recordCreate("cart-1", 1000);
+        journal.recordSetLine("cart-1", 1000, "1", 3);
+        journal.close();
+
+        // crash after the next journal is opened and while the snapshot is written to the temp file
+        File temp = new File(dir, "snapshot.bin.tmp");
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            file.write(new byte[]{0x43, 0x41, 0x52});
+        }
+        long generation = generationOf(lastJournal());
+        Assert.assertTrue(new File(dir, "journal-" + (generation + 1) + ".log").createNewFile());
+
+        CartJournal restarted = newJournal(100);
+        carts.clear();
+        carts.putAll(restarted.replay());
+        Assert.assertEquals(3, carts.get("cart-1").getAmount("1"));
+
+        restarted.start(carts::values);
+        restarted.close();
+
+        Assert.assertFalse(temp.exists());
+        Assert.assertEquals(3, newJournal(100).replay().get("cart-1").getAmount("1"));
+    }
+
+    @Test
+    public void shouldReplayJournalsWhenSnapshotFormatIsUnknown() throws Exception {
+        CartJournal journal = startJournal(100);
+        journal.recordCreate("cart-1", 1000);
+        journal.recordSetLine("cart-1", 1000, "1", 4);
+        journal.close();
+
+        // format is the int after the magic
+        try (RandomAccessFile file = new RandomAccessFile(new File(dir, "snapshot.bin"), "rw")) {
+            file.seek(4);
+            file.writeInt(99);
+        }
+
+        Map<String, CartSession> replayed = newJournal(100).replay();
+
+        Assert.assertEquals(4, replayed.get("cart-1").getAmount("1"));
+    }
+
+    @Test
+    public void shouldCountLostRecordsAndTakeSnapshotWhenBatchCannotBeWritten() throws Exception {
+        CartJournal journal = startJournal(100);
+        CartSession cart = new CartSession("cart-1", 1000);
+        cart.restoreLine("1", 3);
+        carts.put(cart.getId(), cart);
+
+        // id is longer than a record can keep, so the batch cannot be written
+        char[] longId = new char[70000];
+        Arrays.fill(longId, 'a');
+        journal.recordCreate(new String(longId), 1000);
+        journal.recordCreate("cart-1", 1000);
+        journal.recordSetLine("cart-1", 1000, "1", 3);
+        journal.close();
+
+        Assert.assertTrue(journal.getLostCount() >= 1);
+        Assert.assertTrue(journal.getSnapshotCount() >= 2);
+
+        Map<String, CartSession> replayed = newJournal(100).replay();
+        Assert.assertEquals(1, replayed.size());
+        Assert.assertEquals(3, replayed.get("cart-1").getAmount("1"));
+    }
+
+    @Test
+    public void shouldNotWaitForeverWhenCloseWithStuckWriter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean stuck = new AtomicBoolean();
+        CartJournal journal = newJournal(1);
+        journal.replay();
+        journal.start(() -> stuckSessions(stuck, release));
+
+        try {
+            // writer is stuck in the snapshot and the queue is full
+            stuck.set(true);
+            journal.requestSnapshot();
+            Thread.sleep(100);
+            journal.recordCreate("cart-1", 1000);
+
+            long startAt = System.currentTimeMillis();
+            journal.close(200);
+
+            Assert.assertTrue(System.currentTimeMillis() - startAt < 5000);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private Collection<CartSession> stuckSessions(AtomicBoolean stuck, CountDownLatch release) {
+        if (stuck.get()) {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return carts.values();
+    }
+
+    private CartJournal startJournal(int queueSize) throws Exception {
+        CartJournal journal = newJournal(queueSize);
+        carts.putAll(journal.replay());
+        journal.start(carts::values);
+
+        return journal;
+    }
+
+    private CartJournal newJournal(int queueSize) {
+        return new CartJournal(dir, FsyncPolicy.ALWAYS, 1000, queueSize, 10);
+    }
+
+    private File lastJournal() {
+        File[] journals = dir.listFiles((file, name) -> name.startsWith("journal-"));
+        Assert.assertNotNull(journals);
+        Arrays.sort(journals, (a, b) -> Long.compare(generationOf(a), generationOf(b)));
+
+        return journals[journals.length - 1];
+    }
+
+    private static long generationOf(File journal) {
+        return Long.valueOf(journal.getName().replaceAll("\\D", ""));
+    }
+}
@@ -0,0 +1,133 @@
+package com.sellsuki.homework.utils;
+
+import com.sellsuki.homework.model.Book;
+import com.sellsuki.homework.model.CatalogIndex;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class CatalogSnapshotFileTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    private CatalogSnapshotFile snapshotFile;
+
+    @Before
+    public void setUp() {
+        file = new File(temporaryFolder.getRoot(), "catalog.snapshot");
+        snapshotFile = new CatalogSnapshotFile(file);
+    }
+
+    @Test
+    public void shouldReadBooksAndSavedTimeThatAreWritten() throws Exception {
+        snapshotFile.write(mockCatalogIndex(), 1234L);
+
+        CatalogSnapshotFile.Snapshot snapshot = snapshotFile.read();
+        CatalogIndex catalogIndex = snapshot.getCatalogIndex();
+
+        Assert.assertEquals(1234L, snapshot.getSavedAt());
+        Assert.assertEquals(2, catalogIndex.size());
+        Assert.assertEquals("Harry (I)", catalogIndex.getTitle(catalogIndex.slotOf("1")));
+        Assert.assertEquals(35050L, catalogIndex.getPriceMinor(catalogIndex.slotOf("2")));
+        Assert.assertNull(catalogIndex.getCover(catalogIndex.slotOf("2")));
+    }
+
+    @Test
+    public void shouldNotReadFileWhenChecksumIsWrong() throws Exception {
+        snapshotFile.write(mockCatalogIndex(), 1234L);
+
+        // a byte in the title of the first book
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(30);
+            int value = output.read();
+            output.seek(30);
+            output.write(value ^ 0xff);
+        }
+
+        assertCannotRead("checksum is wrong");
+    }
+
+    @Test
+    public void shouldNotReadFileThatIsCut() throws Exception {
+        snapshotFile.write(mockCatalogIndex(), 1234L);
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertCannotRead("checksum is wrong");
+    }
+
+    @Test
+    public void shouldNotReadFileOfOtherFormat() throws Exception {
+        snapshotFile.write(mockCatalogIndex(), 1234L);
+
+        // format is the int after the magic, checksum is written again so only the format is wrong
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        bytes.putInt(4, 2);
+        int end = bytes.capacity() - 8;
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, end);
+        bytes.putLong(end, crc.getValue());
+        Files.write(file.toPath(), bytes.array());
+
+        assertCannotRead("unknown format 2");
+    }
+
+    @Test
+    public void shouldReplaceTempFileThatIsLeftByCrash() throws Exception {
+        snapshotFile.write(mockCatalogIndex(), 1234L);
+
+        // crash while the next snapshot is written, the complete file is still there
+        File temp = new File(temporaryFolder.getRoot(), "catalog.snapshot.tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(new byte[]{0x43, 0x54});
+        }
+        Assert.assertEquals(1234L, snapshotFile.read().getSavedAt());
+
+        snapshotFile.write(mockCatalogIndex(), 5678L);
+
+        Assert.assertFalse(temp.exists());
+        Assert.assertEquals(5678L, snapshotFile.read().getSavedAt());
+    }
+
+    private void assertCannotRead(String message) {
+        try {
+            snapshotFile.read();
+            Assert.fail();
+        } catch (IOException ex) {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains(message));
+        }
+    }
+
+    private CatalogIndex mockCatalogIndex() {
+        CatalogIndex.Builder builder = CatalogIndex.builder();
+        builder.add(mockBook("1", "Harry (I)", "cover", "100"));
+        builder.add(mockBook("2", "Harry (II)", null, "350.50"));
+
+        return builder.build();
+    }
+
+    private Book mockBook(String id, String title, String cover, String price) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setCover(cover);
+        book.setPrice(price);
+
+        return book;
+    }
+}
@@ -0,0 +1,72 @@
+package com.sellsuki.homework.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class HistogramTest {
+
+    @Test
+    public void shouldPutValueInBucketThatContainsIt() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            Assert.assertTrue(value + " is more than its bucket", value <= Histogram.highestOf(bucket));
+            if (bucket > 0) {
+                Assert.assertTrue(value + " is in the bucket before", value > Histogram.highestOf(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void shouldReturnPercentileWithin6Percent() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(10000, snapshot.getCount());
+        Assert.assertEquals(5000.5, snapshot.getMean(), 0.001);
+        Assert.assertEquals(10000, snapshot.getMax());
+        assertWithin(5000, snapshot.getValueAtPercentile(50));
+        assertWithin(9900, snapshot.getValueAtPercentile(99));
+        Assert.assertEquals(10000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void shouldReturnZeroWhenNothingIsRecorded() {
+        Histogram.Snapshot snapshot = new Histogram().snapshot();
+
+        Assert.assertEquals(0, snapshot.getCount());
+        Assert.assertEquals(0, snapshot.getMean(), 0);
+        Assert.assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void shouldNotLoseValueWhenRecordFromManyThreads() throws Exception {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i % 100);
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(400000, snapshot.getCount());
+        Assert.assertEquals(99, snapshot.getMax());
+    }
+
+    private void assertWithin(long expected, long actual) {
+        Assert.assertTrue(actual + " is less than " + expected, actual >= expected);
+        Assert.assertTrue(actual + " is more than 6.25% of " + expected, actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,30 @@
+package com.sellsuki.homework.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogRateLimiterTest {
+
+    private LogRateLimiter logRateLimiter = new LogRateLimiter();
+
+    @Test
+    public void shouldLogOncePerIntervalAndCountTheOthers() throws Exception {
+        Assert.assertEquals(0, logRateLimiter.tryAcquire(IllegalStateException.class, 50));
+        Assert.assertEquals(-1, logRateLimiter.tryAcquire(IllegalStateException.class, 50));
+        Assert.assertEquals(-1, logRateLimiter.tryAcquire(IllegalStateException.class, 50));
+
+        // other key has its own interval
+        Assert.assertEquals(0, logRateLimiter.tryAcquire(NullPointerException.class, 50));
+
+        Thread.sleep(60);
+
+        Assert.assertEquals(2, logRateLimiter.tryAcquire(IllegalStateException.class, 50));
+        Assert.assertEquals(-1, logRateLimiter.tryAcquire(IllegalStateException.class, 50));
+    }
+
+    @Test
+    public void shouldLogEveryTimeWhenIntervalIsZero() {
+        Assert.assertEquals(0, logRateLimiter.tryAcquire(IllegalStateException.class, 0));
+        Assert.assertEquals(0, logRateLimiter.tryAcquire(IllegalStateException.class, 0));
+    }
+}
@@ -0,0 +1,100 @@
+package com.sellsuki.homework.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class LruCacheTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() {
+        LruCache<Integer, String> cache = new LruCache<>(3, 1);
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(3, "3");
+
+        // 1 is used again, so 2 is the least recently used
+        Assert.assertEquals("1", cache.get(1));
+        cache.put(4, "4");
+
+        Assert.assertNull(cache.get(2));
+        Assert.assertEquals("1", cache.get(1));
+        Assert.assertEquals("3", cache.get(3));
+        Assert.assertEquals("4", cache.get(4));
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void shouldKeepMaxSizeDividedBySegmentsInEverySegment() {
+        // 4 segments of 2 entries, small integer keys go to segment (key % 4)
+        LruCache<Integer, String> cache = new LruCache<>(8, 4);
+        cache.put(0, "0");
+        cache.put(4, "4");
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(8, "8");
+
+        // segment 0 is full, 0 is evicted even though the cache has less than 8 entries
+        Assert.assertNull(cache.get(0));
+        Assert.assertEquals("4", cache.get(4));
+        Assert.assertEquals("8", cache.get(8));
+        Assert.assertEquals("1", cache.get(1));
+        Assert.assertEquals("2", cache.get(2));
+        Assert.assertEquals(4, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void shouldCountHitAndMissAndForgetAllWhenClear() {
+        LruCache<String, String> cache = new LruCache<>(10, 4);
+        cache.put("a", "A");
+
+        Assert.assertEquals("A", cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        cache.clear();
+        Assert.assertNull(cache.get("a"));
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldStayBoundedAndConsistentWhenUsedFromManyThreads() throws Exception {
+        LruCache<Integer, Integer> cache = new LruCache<>(64, 8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> wrongValues = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            int seed = thread;
+            wrongValues.add(executor.submit(() -> {
+                int wrong = 0;
+                for (int i = 0; i < 100000; i++) {
+                    int key = (i * 31 + seed) % 200;
+                    Integer value = cache.get(key);
+                    if (value == null) {
+                        cache.put(key, key * 2);
+                    } else if (value != key * 2) {
+                        wrong++;
+                    }
+                }
+                return wrong;
+            }));
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (Future<Integer> wrong : wrongValues) {
+            Assert.assertEquals(Integer.valueOf(0), wrong.get());
+        }
+        Assert.assertEquals(400000, cache.getHitCount() + cache.getMissCount());
+        Assert.assertTrue(cache.size() <= 64);
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+    }
+}